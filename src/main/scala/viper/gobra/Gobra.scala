@@ -20,17 +20,17 @@ import viper.gobra.backend.BackendVerifier
 import viper.gobra.frontend.PackageResolver.{AbstractPackage, RegularPackage}
 import viper.gobra.frontend.Parser.ParseResult
 import viper.gobra.frontend.info.{Info, TypeInfo}
-import viper.gobra.frontend.{Config, Desugar, PackageInfo, Parser, ScallopGobraConfig}
+import viper.gobra.frontend.{Config, Desugar, PackageInfo, Parser, ProgramCache, ScallopGobraConfig}
 import viper.gobra.reporting._
 import viper.gobra.translator.Translator
 import viper.gobra.util.Violation.{KnownZ3BugException, LogicException, UglyErrorMessage}
-import viper.gobra.util.{DefaultGobraExecutionContext, GobraExecutionContext}
+import viper.gobra.util.{ChopperCostModel, DefaultGobraExecutionContext, GobraExecutionContext, OutputUtil}
 import viper.silicon.BuildInfo
 import viper.silver.{ast => vpr}
 
 import java.time.format.DateTimeFormatter
 import java.time.LocalTime
-import scala.concurrent.{Await, Future, TimeoutException}
+import scala.concurrent.{Await, Future, TimeoutException, blocking}
 
 object GoVerifier {
 
@@ -61,7 +61,8 @@ trait GoVerifier extends StrictLogging {
    * Additionally statistics are collected with the StatsCollector reporter class
    */
   def verifyAllPackages(config: Config)(executor: GobraExecutionContext): VerifierResult = {
-    val statsCollector = StatsCollector(config.reporter)
+    val resultStreamReporter = config.streamResults.map(ResultStreamReporter(_, config.reporter))
+    val statsCollector = StatsCollector(resultStreamReporter.getOrElse(config.reporter))
     var warningCount: Int = 0
     var allVerifierErrors: Vector[VerifierError] = Vector()
     var allTimeoutErrors: Vector[TimeoutError] = Vector()
@@ -83,39 +84,52 @@ trait GoVerifier extends StrictLogging {
     })
 
     val timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-    config.packageInfoInputMap.keys.foreach(pkgInfo => {
-      val pkgId = pkgInfo.id
-      logger.info(s"Verifying package $pkgId [${LocalTime.now().format(timeFormatter)}]")
-      val future = verify(pkgInfo, config.copy(reporter = statsCollector, taskName = pkgId))(executor)
-        .map(result => {
-          // report that verification of this package has finished in order that `statsCollector` can free space by getting rid of this package's typeInfo
-          statsCollector.report(VerificationTaskFinishedMessage(pkgId))
-
-          val warnings = statsCollector.getMessagesAboutDependencies(pkgId, config)
-          warningCount += warnings.size
-          warnings.foreach(w => logger.debug(w))
-
-          result match {
-            case VerifierResult.Success => logger.info(s"$name found no errors")
-            case VerifierResult.Failure(errors) =>
-              logger.error(s"$name has found ${errors.length} error(s) in package $pkgId")
-              if (config.noStreamErrors) {
-                errors.foreach(err => logger.error(s"\t${err.formattedMessage}"))
-              }
-              allVerifierErrors = allVerifierErrors ++ errors
-          }
-        })(executor)
-      try {
-        Await.result(future, config.packageTimeout)
-      } catch {
-        case _: TimeoutException =>
-          logger.error(s"The verification of package $pkgId got terminated after " + config.packageTimeout.toString)
-          statsCollector.report(VerificationTaskFinishedMessage(pkgId))
-          val errors = statsCollector.getTimeoutErrors(pkgId)
-          errors.foreach(err => logger.error(err.formattedMessage))
-          allTimeoutErrors = allTimeoutErrors ++ errors
+    // the result stream is closed even if the verification of a package fails unexpectedly
+    try {
+      config.packageInfoInputMap.keys.foreach(pkgInfo => {
+        val pkgId = pkgInfo.id
+        logger.info(s"Verifying package $pkgId [${LocalTime.now().format(timeFormatter)}]")
+        val future = verify(pkgInfo, config.copy(reporter = statsCollector, taskName = pkgId))(executor)
+          .map(result => {
+            // report that verification of this package has finished in order that `statsCollector` can free space by getting rid of this package's typeInfo
+            statsCollector.report(VerificationTaskFinishedMessage(pkgId))
+
+            val warnings = statsCollector.getMessagesAboutDependencies(pkgId, config)
+            warningCount += warnings.size
+            warnings.foreach(w => logger.debug(w))
+
+            result match {
+              case VerifierResult.Success => logger.info(s"$name found no errors")
+              case VerifierResult.Failure(errors) =>
+                logger.error(s"$name has found ${errors.length} error(s) in package $pkgId")
+                if (config.noStreamErrors) {
+                  errors.foreach(err => logger.error(s"\t${err.formattedMessage}"))
+                }
+                allVerifierErrors = allVerifierErrors ++ errors
+            }
+          })(executor)
+        try {
+          Await.result(future, config.packageTimeout)
+        } catch {
+          case _: TimeoutException =>
+            logger.error(s"The verification of package $pkgId got terminated after " + config.packageTimeout.toString)
+            statsCollector.report(VerificationTaskFinishedMessage(pkgId))
+            val errors = statsCollector.getTimeoutErrors(pkgId)
+            errors.foreach(err => logger.error(err.formattedMessage))
+            allTimeoutErrors = allTimeoutErrors ++ errors
+        }
+      })
+    } finally {
+      resultStreamReporter.foreach(_.close())
+    }
+
+    // Update the cost model used for chopping with the verification times observed in this run
+    if (config.adaptiveChopping) {
+      val wroteFile = ChopperCostModel.record(config.gobraDirectory, statsCollector.getViperMemberVerificationTimes)
+      if (!wroteFile) {
+        logger.error(s"Could not write the chopper cost model to ${config.gobraDirectory}.")
       }
-    })
+    }
 
     // Print statistics for caching
     if(config.cacheFile.isDefined) {
@@ -158,32 +172,40 @@ class Gobra extends GoVerifier with GoIdeVerifier {
       _ = setLogLevel(finalConfig)
       parseResults <- performParsing(finalConfig, pkgInfo)
       typeInfo <- performTypeChecking(finalConfig, pkgInfo, parseResults)
-      program <- performDesugaring(finalConfig, typeInfo)
-      program <- performInternalTransformations(finalConfig, pkgInfo, program)
+      program <- performCachedDesugaring(finalConfig, pkgInfo, parseResults, typeInfo)
       viperTask <- performViperEncoding(finalConfig, pkgInfo, program)
     } yield (viperTask, finalConfig)
 
-    task.foldM({
+    val res = task.foldM({
       case Vector() => Future(VerifierResult.Success)
       case errors => Future(VerifierResult.Failure(errors))
     }, {
       case (job, finalConfig) => performVerification(finalConfig, pkgInfo, job.program,  job.backtrack)
     })
+    awaitOutputFiles(res)
   }
 
   override def verifyAst(config: Config, pkgInfo: PackageInfo, ast: vpr.Program, backtrack: BackTranslator.BackTrackInfo)(executor: GobraExecutionContext): Future[VerifierResult] = {
     // directly declaring the parameter implicit somehow does not work as the compiler is unable to spot the inheritance
     implicit val _executor: GobraExecutionContext = executor
     val viperTask = BackendVerifier.Task(ast, backtrack)
-    performVerification(config, pkgInfo, viperTask)
+    val res = performVerification(config, pkgInfo, viperTask)
       .map(BackTranslator.backTranslate(_)(config))
       .recoverWith {
         case e: ExecutionException if isKnownZ3Bug(e) =>
           // The Z3 instance died. This is a known issue that is caused by a Z3 bug.
           Future.failed(new KnownZ3BugException("Encountered a known Z3 bug. Please, execute the file again."))
       }
+    awaitOutputFiles(res)
   }
 
+  /**
+    * Completes once `res` has completed and all output files (e.g. the files generated by `--printVpr`) that have been
+    * submitted until then have been written, such that callers can read them as soon as the verification is done.
+    */
+  private def awaitOutputFiles[T](res: Future[T])(implicit executor: GobraExecutionContext): Future[T] =
+    res.transform { r => blocking(AsyncFileWriter.awaitSubmitted()); r }
+
   @scala.annotation.tailrec
   private def isKnownZ3Bug(e: ExecutionException): Boolean = {
     def causedByFile(st: Array[StackTraceElement], filename: String): Boolean = {
@@ -248,7 +270,7 @@ class Gobra extends GoVerifier with GoIdeVerifier {
       val res = Parser.parse(config, pkgInfo)
       logger.debug {
         val durationS = f"${(System.currentTimeMillis() - startMs) / 1000f}%.1f"
-        s"parser phase done, took ${durationS}s"
+        s"parser phase done, took ${durationS}s, heap in use: ${OutputUtil.usedHeapMB} MB"
       }
       res
     } else {
@@ -270,7 +292,7 @@ class Gobra extends GoVerifier with GoIdeVerifier {
       val res = EitherT.right[Vector[VerifierError], Future, Program](Desugar.desugar(config, typeInfo)(executor))
       logger.debug {
         val durationS = f"${(System.currentTimeMillis() - startMs) / 1000f}%.1f"
-        s"desugaring done, took ${durationS}s"
+        s"desugaring done, took ${durationS}s, heap in use: ${OutputUtil.usedHeapMB} MB"
       }
       res
     } else {
@@ -278,6 +300,49 @@ class Gobra extends GoVerifier with GoIdeVerifier {
     }
   }
 
+  /**
+    * Desugars and transforms the program unless `--cacheDesugaredProgram` is set and the program cache has an entry
+    * for the parsed packages, in which case both phases are skipped.
+    */
+  private def performCachedDesugaring(config: Config, pkgInfo: PackageInfo, parseResults: Map[AbstractPackage, ParseResult], typeInfo: TypeInfo)(implicit executor: GobraExecutionContext): EitherT[Vector[VerifierError], Future, Program] = {
+    def desugarAndTransform: EitherT[Vector[VerifierError], Future, Program] = for {
+      program <- performDesugaring(config, typeInfo)
+      program <- performInternalTransformations(config, pkgInfo, program)
+    } yield program
+
+    val res = if (config.cacheDesugaredProgram && config.shouldDesugar) {
+      val key = ProgramCache.key(config, parseResults)
+      ProgramCache.load(config, key, parseResults) match {
+        case Some(ProgramCache.Entry(desugared, transformed)) =>
+          logger.debug("desugaring skipped, the program has been loaded from the program cache")
+          // report the same messages as the skipped phases
+          val inputs = config.packageInfoInputMap(pkgInfo).map(_.name)
+          config.reporter.report(DesugaredMessage(inputs, () => desugared))
+          config.reporter.report(AppliedInternalTransformsMessage(inputs, () => transformed))
+          EitherT.right(transformed)
+        case None =>
+          for {
+            desugared <- performDesugaring(config, typeInfo)
+            transformed <- performInternalTransformations(config, pkgInfo, desugared)
+            _ = ProgramCache.store(config, key, parseResults, ProgramCache.Entry(desugared, transformed))
+          } yield transformed
+      }
+    } else desugarAndTransform
+
+    if (config.releaseFrontend) res.map { program => releaseFrontend(parseResults); program } else res
+  }
+
+  /**
+    * Removes the parse ASTs and type-checkers of the parsed packages from the frontend caches. The desugared program
+    * only retains the frontend nodes referenced by its source infos, which are needed for back-translation.
+    */
+  private def releaseFrontend(parseResults: Map[AbstractPackage, ParseResult]): Unit = {
+    val pkgs = parseResults.values.collect { case Right((_, pkg)) => pkg }
+    Parser.releaseCached(pkgs)
+    Info.releaseCached(pkgs)
+    logger.debug(s"released frontend caches, heap in use: ${OutputUtil.usedHeapMB} MB")
+  }
+
   /**
     * Applies transformations to programs in the internal language. Currently, only adds overflow checks but it can
     * be easily extended to perform more transformations
@@ -294,7 +359,7 @@ class Gobra extends GoVerifier with GoIdeVerifier {
     val result = transformations.foldLeft(program)((prog, transf) => transf.transform(prog))
     logger.debug {
       val durationS = f"${(System.currentTimeMillis() - startMs) / 1000f}%.1f"
-      s"internal transformations done, took ${durationS}s"
+      s"internal transformations done, took ${durationS}s, heap in use: ${OutputUtil.usedHeapMB} MB"
     }
     config.reporter.report(AppliedInternalTransformsMessage(config.packageInfoInputMap(pkgInfo).map(_.name), () => result))
     EitherT.right(result)
@@ -306,7 +371,7 @@ class Gobra extends GoVerifier with GoIdeVerifier {
       val res = EitherT.fromEither[Future, Vector[VerifierError], BackendVerifier.Task](Future.successful(Translator.translate(program, pkgInfo)(config)))
       logger.debug {
         val durationS = f"${(System.currentTimeMillis() - startMs) / 1000f}%.1f"
-        s"Viper encoding done, took ${durationS}s"
+        s"Viper encoding done, took ${durationS}s, heap in use: ${OutputUtil.usedHeapMB} MB"
       }
       res
     } else {
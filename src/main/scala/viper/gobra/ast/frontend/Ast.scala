@@ -23,6 +23,12 @@ import scala.collection.immutable
 
 sealed trait PNode extends Product {
 
+  /**
+    * unique id of this node instance, used as key of [[CompactPositions]]. Ids start at 1 such that deserialized
+    * nodes, whose id is 0, never share positions with nodes of the current run.
+    */
+  @transient val nodeId: Long = PNode.nextNodeId()
+
   def pretty(prettyPrinter: PrettyPrinter = PNode.defaultPrettyPrinter): String = prettyPrinter.format(this)
 
   lazy val formatted: String = pretty()
@@ -35,6 +41,9 @@ object PNode {
   type PPkg = String
   val defaultPrettyPrinter = new DefaultPrettyPrinter
   val shortPrettyPrinter = new ShortPrettyPrinter
+
+  private val nodeIdCounter = new java.util.concurrent.atomic.AtomicLong(1)
+  private def nextNodeId(): Long = nodeIdCounter.getAndIncrement()
 }
 
 sealed trait PScope extends PNode
@@ -0,0 +1,161 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.ast.frontend
+
+import org.bitbucket.inkytonik.kiama.util.{Position, Positions, Source}
+
+import java.util
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Stores the start and finish positions of frontend nodes in primitive arrays instead of the identity maps used by
+  * Kiama's [[Positions]]. A position is packed into a long consisting of the index of its (interned) source and its
+  * offset within the source. The entries are stored in an open-addressing hash table that is keyed by the node id
+  * assigned to every [[PNode]] at construction. Line and column are recomputed from a per-source index of line starts
+  * when a position is requested.
+  *
+  * Keys that are not frontend nodes (e.g. vectors of nodes) and positions that cannot be represented by an offset are
+  * handled by Kiama's implementation.
+  */
+class CompactPositions extends Positions {
+
+  private val Unset: Long = -1L
+  private val InitialCapacity: Int = 1024
+
+  // interned sources together with the offsets at which their lines start
+  private val sources: ArrayBuffer[Source] = ArrayBuffer.empty
+  private val lineStarts: ArrayBuffer[Array[Int]] = ArrayBuffer.empty
+  private val sourceIndices: util.IdentityHashMap[Source, Integer] = new util.IdentityHashMap()
+
+  // hash table mapping node ids to packed start and finish positions. A slot is free iff its key is `Unset`
+  private var keys: Array[Long] = Array.fill(InitialCapacity)(Unset)
+  private var starts: Array[Long] = Array.fill(InitialCapacity)(Unset)
+  private var finishes: Array[Long] = Array.fill(InitialCapacity)(Unset)
+  private var size: Int = 0
+
+  override def getStart[T](t: T): Option[Position] = t match {
+    case n: PNode => synchronized(get(starts, n.nodeId)).orElse(super.getStart(t))
+    case _ => super.getStart(t)
+  }
+
+  override def getFinish[T](t: T): Option[Position] = t match {
+    case n: PNode => synchronized(get(finishes, n.nodeId)).orElse(super.getFinish(t))
+    case _ => super.getFinish(t)
+  }
+
+  override def setStart[T](t: T, p: Position): Unit = t match {
+    case n: PNode if synchronized(set(isStart = true, n.nodeId, p)) =>
+    case _ => super.setStart(t, p)
+  }
+
+  override def setFinish[T](t: T, p: Position): Unit = t match {
+    case n: PNode if synchronized(set(isStart = false, n.nodeId, p)) =>
+    case _ => super.setFinish(t, p)
+  }
+
+  override def dupPos[T](a: Any, b: T): T = {
+    getStart(a).foreach(setStart(b, _))
+    getFinish(a).foreach(setFinish(b, _))
+    b
+  }
+
+  override def dupRangePos[T](a: Any, b: Any, c: T): T = {
+    getStart(a).foreach(setStart(c, _))
+    getFinish(b).foreach(setFinish(c, _))
+    c
+  }
+
+  override def reset(): Unit = {
+    synchronized {
+      keys = Array.fill(InitialCapacity)(Unset)
+      starts = Array.fill(InitialCapacity)(Unset)
+      finishes = Array.fill(InitialCapacity)(Unset)
+      size = 0
+    }
+    super.reset()
+  }
+
+  private def get(values: Array[Long], id: Long): Option[Position] = {
+    val slot = find(id)
+    if (keys(slot) == Unset || values(slot) == Unset) None else Some(unpack(values(slot)))
+  }
+
+  /** returns false if `p` cannot be stored in the compact representation */
+  private def set(isStart: Boolean, id: Long, p: Position): Boolean = {
+    pack(p) match {
+      case None => false
+      case Some(packed) =>
+        if (2 * (size + 1) > keys.length) grow()
+        val slot = find(id)
+        if (keys(slot) == Unset) {
+          keys(slot) = id
+          size += 1
+        }
+        if (isStart) starts(slot) = packed else finishes(slot) = packed
+        true
+    }
+  }
+
+  /** returns the slot storing `id` or the free slot at which `id` has to be inserted */
+  private def find(id: Long): Int = {
+    val mask = keys.length - 1
+    var slot = (java.lang.Long.hashCode(id * 0x9E3779B97F4A7C15L) & mask)
+    while (keys(slot) != Unset && keys(slot) != id) slot = (slot + 1) & mask
+    slot
+  }
+
+  private def grow(): Unit = {
+    val (oldKeys, oldStarts, oldFinishes) = (keys, starts, finishes)
+    keys = Array.fill(2 * oldKeys.length)(Unset)
+    starts = Array.fill(2 * oldKeys.length)(Unset)
+    finishes = Array.fill(2 * oldKeys.length)(Unset)
+    oldKeys.indices.foreach { i =>
+      if (oldKeys(i) != Unset) {
+        val slot = find(oldKeys(i))
+        keys(slot) = oldKeys(i)
+        starts(slot) = oldStarts(i)
+        finishes(slot) = oldFinishes(i)
+      }
+    }
+  }
+
+  private def sourceIndex(source: Source): Int = {
+    val idx = sourceIndices.get(source)
+    if (idx != null) idx
+    else {
+      val content = source.content
+      val starts = 0 +: content.indices.filter(content(_) == '\n').map(_ + 1)
+      sources += source
+      lineStarts += starts.toArray
+      sourceIndices.put(source, sources.size - 1)
+      sources.size - 1
+    }
+  }
+
+  private def pack(p: Position): Option[Long] = {
+    val srcIdx = sourceIndex(p.source)
+    val lines = lineStarts(srcIdx)
+    if (p.line < 1 || p.line > lines.length || p.column < 1) None
+    else {
+      val packed = (srcIdx.toLong << 32) | (lines(p.line - 1) + p.column - 1).toLong
+      // positions beyond the end of a line would not be recovered correctly
+      if (unpack(packed) == p) Some(packed) else None
+    }
+  }
+
+  private def unpack(packed: Long): Position = {
+    val srcIdx = (packed >>> 32).toInt
+    val offset = packed.toInt
+    val lines = lineStarts(srcIdx)
+    // index of the last line starting at or before `offset`
+    val lineIdx = util.Arrays.binarySearch(lines, offset) match {
+      case i if i >= 0 => i
+      case i => -i - 2
+    }
+    Position(lineIdx + 1, offset - lines(lineIdx) + 1, sources(srcIdx))
+  }
+}
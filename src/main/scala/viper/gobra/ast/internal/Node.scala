@@ -13,6 +13,7 @@ import viper.silver.ast.utility.rewriter.Traverse.Traverse
 import viper.silver.ast.utility.rewriter.{StrategyBuilder, Traverse}
 import viper.silver.{ast => vpr}
 
+import scala.collection.immutable.VectorBuilder
 import scala.collection.mutable
 import scala.reflect.ClassTag
 
@@ -22,7 +23,8 @@ trait Node extends Rewritable with Product {
 
   def undefinedInfo: Boolean = info == Source.Parser.Unsourced
 
-  lazy val vprMeta: (vpr.Position, vpr.Info, vpr.ErrorTrafo) = info.vprMeta(this)
+  // not serialized by the program cache since Viper nodes are not serializable
+  @transient lazy val vprMeta: (vpr.Position, vpr.Info, vpr.ErrorTrafo) = info.vprMeta(this)
 
   def pretty(prettyPrinter: PrettyPrinter = Node.defaultPrettyPrinter): String = prettyPrinter.format(this)
 
@@ -46,7 +48,16 @@ trait Node extends Rewritable with Product {
   }
 
   /** Apply the given function to the AST node and all its subnodes. */
-  def foreach[A](f: Node => A): Unit = Visitor.visit(this, Nodes.subnodes) { case a: Node => f(a) }
+  def foreach[A](f: Node => A): Unit = {
+    f(this)
+    Nodes.foreachChild(this)(_.foreach(f))
+  }
+
+  /** @see [[Nodes.foreachChild()]] */
+  def foreachChild(f: Node => Unit): Unit = Nodes.foreachChild(this)(f)
+
+  /** @see [[Nodes.foldChildren()]] */
+  def foldChildren[A](z: A)(op: (A, Node) => A): A = Nodes.foldChildren(this, z)(op)
 
   /** Builds a new collection with all the AST nodes and returns an iterator over it. */
   def iterator: Iterator[Node] = {
@@ -59,7 +70,8 @@ trait Node extends Rewritable with Product {
 
   /** @see [[Visitor.visit()]] */
   def visit[A](f: PartialFunction[Node, A]): Unit = {
-    Visitor.visit(this, Nodes.subnodes)(f)
+    if (f.isDefinedAt(this)) f(this)
+    Nodes.foreachChild(this)(_.visit(f))
   }
 
   /** @see [[Visitor.visitWithContext()]] */
@@ -88,18 +100,33 @@ trait Node extends Rewritable with Product {
   }
 
   /** @see [[Visitor.existsDefined()]] */
-  def existsDefined[A](f: PartialFunction[Node, A]): Boolean = Visitor.existsDefined(this, Nodes.subnodes)(f)
+  def existsDefined[A](f: PartialFunction[Node, A]): Boolean =
+    f.isDefinedAt(this) || Nodes.existsChild(this)(_.existsDefined(f))
 
   /** @see [[Visitor.hasSubnode()]] */
   def hasSubnode(toFind: Node): Boolean = Visitor.hasSubnode(this, toFind, Nodes.subnodes)
 
   /** @see [[Visitor.deepCollect()]] */
-  def deepCollect[A](f: PartialFunction[Node, A]): Seq[A] =
-    Visitor.deepCollect(Seq(this), Nodes.subnodes)(f)
+  def deepCollect[A](f: PartialFunction[Node, A]): Seq[A] = {
+    val builder = new VectorBuilder[A]
+    def go(n: Node): Unit = {
+      if (f.isDefinedAt(n)) builder += f(n)
+      Nodes.foreachChild(n)(go)
+    }
+    go(this)
+    builder.result()
+  }
 
   /** @see [[Visitor.shallowCollect()]] */
-  def shallowCollect[R](f: PartialFunction[Node, R]): Seq[R] =
-    Visitor.shallowCollect(Seq(this), Nodes.subnodes)(f)
+  def shallowCollect[R](f: PartialFunction[Node, R]): Seq[R] = {
+    val builder = new VectorBuilder[R]
+    def go(n: Node): Unit = {
+      if (f.isDefinedAt(n)) builder += f(n)
+      else Nodes.foreachChild(n)(go)
+    }
+    go(this)
+    builder.result()
+  }
 
   def contains(n: Node): Boolean = this.existsDefined {
     case `n` =>
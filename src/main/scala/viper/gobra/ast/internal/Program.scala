@@ -49,7 +49,7 @@ class LookupTable(
                    */
                    private[internal] val directInterfaceImplementations: Map[InterfaceT, SortedSet[Type]] = Map.empty,
                    private[internal] val implementationProofPredicateAliases: Map[(Type, InterfaceT, String), FPredicateProxy] = Map.empty,
-                 ) {
+                 ) extends Serializable {
   def lookup(t: DefinedT): Type = definedTypes(t.name, t.addressability)
   def lookup(m: MethodProxy): MethodLikeMember = definedMethods(m)
   def lookup(f: FunctionProxy): FunctionLikeMember = definedFunctions(f)
@@ -530,7 +530,10 @@ sealed trait Expr extends Node with Typed with TriggerExpr
 
 object Expr {
   def getSubExpressions(x: Expr): Set[Expr] = {
-    def aux(x: Expr): Set[Expr] = x.subnodes.collect{ case e: Expr => e }.toSet
+    def aux(x: Expr): Set[Expr] = x.foldChildren(Set.empty[Expr]) {
+      case (acc, e: Expr) => acc + e
+      case (acc, _) => acc
+    }
     def auxClosed(x: Expr): Set[Expr] = aux(x).flatMap(auxClosed) + x
     aux(x).flatMap(auxClosed) + x
   }
@@ -10,6 +10,8 @@ import viper.gobra.reporting.Source
 import viper.silver.{ast => vpr}
 import viper.silver.ast.utility.rewriter.{Rewritable => ViperRewritable}
 
+import java.lang.reflect.{Constructor, InvocationTargetException}
+
 /**
   * This trait makes the functionality of [[viper.silver.ast.utility.rewriter.Strategy]] available.
   * For that, only the `withChildren` and `children` methods of the [[ViperRewritable]] trait are necessary.
@@ -18,19 +20,11 @@ import viper.silver.ast.utility.rewriter.{Rewritable => ViperRewritable}
 trait Rewritable extends ViperRewritable { this: Node =>
 
   private def create(children: Seq[Any])(info: Any): this.type = {
-    import scala.reflect.runtime.{universe => reflection}
-    val mirror = reflection.runtimeMirror(reflection.getClass.getClassLoader)
-    val instanceMirror = mirror.reflect(this)
-    val classSymbol = instanceMirror.symbol
-    val classMirror = mirror.reflectClass(classSymbol)
-    val constructorSymbol = instanceMirror.symbol.primaryConstructor.asMethod
-    val constructorMirror = classMirror.reflectConstructor(constructorSymbol)
-
-    val firstArgList = children
-    val secondArgList = Seq(info)
-
-    // Call constructor
-    val newNode = constructorMirror(firstArgList ++ secondArgList: _*)
+    val args = children :+ info
+    val newNode = Rewritable.constructors.get(getClass) match {
+      case Some(constructor) => Rewritable.createWithConstructor(constructor, args)
+      case None => Rewritable.createReflectively(this, args)
+    }
     newNode.asInstanceOf[this.type]
   }
 
@@ -65,3 +59,52 @@ trait Rewritable extends ViperRewritable { this: Node =>
     withInfo(info)
   }
 }
+
+object Rewritable {
+
+  /**
+    * Caches for every node class the Java constructor corresponding to its primary constructor. Scala runtime reflection
+    * is only used once per class to identify the primary constructor, which avoids the cost and the global lock of
+    * Scala reflection when rebuilding nodes. Maps to None if the primary constructor cannot be uniquely identified.
+    */
+  private[ast] val constructors: ClassValue[Option[Constructor[_]]] = new ClassValue[Option[Constructor[_]]] {
+    override protected def computeValue(clazz: Class[_]): Option[Constructor[_]] = {
+      import scala.reflect.runtime.{universe => reflection}
+      val mirror = reflection.runtimeMirror(clazz.getClassLoader)
+      // the Java constructor takes the parameters of all parameter lists of the primary constructor
+      val arity = mirror.classSymbol(clazz).primaryConstructor.asMethod.paramLists.map(_.size).sum
+      clazz.getConstructors.filter(_.getParameterCount == arity) match {
+        case Array(constructor) => Some(constructor)
+        case _ => None
+      }
+    }
+  }
+
+  /**
+    * Creates a node using `constructor`. Exceptions thrown by the constructor (e.g. failing requirements of a node) are
+    * rethrown as they are instead of being wrapped in an [[InvocationTargetException]].
+    */
+  private[ast] def createWithConstructor(constructor: Constructor[_], args: Seq[Any]): Any =
+    try {
+      constructor.newInstance(args.map(_.asInstanceOf[AnyRef]): _*)
+    } catch {
+      case e: InvocationTargetException if e.getCause != null => throw e.getCause
+    }
+
+  /** Fallback for classes whose primary constructor cannot be identified among the Java constructors. */
+  private[ast] def createReflectively(node: Node, args: Seq[Any]): Any = {
+    import scala.reflect.runtime.{universe => reflection}
+    val mirror = reflection.runtimeMirror(reflection.getClass.getClassLoader)
+    val instanceMirror = mirror.reflect(node)
+    val classSymbol = instanceMirror.symbol
+    val classMirror = mirror.reflectClass(classSymbol)
+    val constructorSymbol = instanceMirror.symbol.primaryConstructor.asMethod
+    val constructorMirror = classMirror.reflectConstructor(constructorSymbol)
+
+    // Call constructor
+    try {
+      constructorMirror(args: _*)
+    } catch {
+      case e: InvocationTargetException if e.getCause != null => throw e.getCause
+    }
+  }
@@ -8,22 +8,56 @@ package viper.gobra.ast.internal.utility
 
 import viper.gobra.ast.internal.Node
 
+import scala.collection.immutable.VectorBuilder
+
 object Nodes {
 
   /** Returns a list of all direct sub-nodes of this node. */
   def subnodes(n: Node): Seq[Node] = {
+    val builder = new VectorBuilder[Node]
+    foreachChild(n)(builder += _)
+    builder.result()
+  }
 
-    def extractChildren(a: Any): Seq[Node] = a match {
-      case t: Node => Seq(t)
-      // Handles Vector, Seq, Option, Map (as iterator of key and value pairs)
-      case t: Iterable[_] => t.flatMap(extractChildren).toSeq
-      // Handles all tuples and case classes that are not subtypes of node
-      case t: Product => t.productIterator.flatMap(extractChildren).toSeq
+  /**
+    * Returns true iff `p` holds for a direct sub-node of `n`. The sub-nodes are visited in the same order as returned by
+    * [[subnodes]] and the traversal stops at the first sub-node satisfying `p`.
+    * In contrast to [[subnodes]], no intermediate collections are created.
+    */
+  def existsChild(n: Node)(p: Node => Boolean): Boolean = {
+
+    def exists(a: Any): Boolean = a match {
+      case t: Node => p(t)
+      // Handles Vector, Seq, Map (as iterator of key and value pairs)
+      case t: Iterable[_] => t.exists(exists)
+      // Handles Option, all tuples and case classes that are not subtypes of node
+      case t: Product => existsElement(t)
       // If it is not a node nor contains a node, then it is irrelevant.
-      case _ => Seq.empty
+      case _ => false
+    }
+
+    def existsElement(t: Product): Boolean = {
+      val arity = t.productArity
+      var i = 0
+      while (i < arity) {
+        if (exists(t.productElement(i))) return true
+        i += 1
+      }
+      false
     }
 
-    n.productIterator.flatMap(extractChildren).toSeq
+    existsElement(n)
+  }
+
+  /** Applies `f` to all direct sub-nodes of `n` without creating intermediate collections. */
+  def foreachChild(n: Node)(f: Node => Unit): Unit =
+    existsChild(n) { c => f(c); false }
+
+  /** Folds `op` over all direct sub-nodes of `n` without creating intermediate collections. */
+  def foldChildren[A](n: Node, z: A)(op: (A, Node) => A): A = {
+    var acc = z
+    foreachChild(n) { c => acc = op(acc, c) }
+    acc
   }
 
 }
@@ -9,13 +9,17 @@ package viper.gobra.backend
 import viper.gobra.backend.ViperBackends.{CarbonBackend => Carbon}
 import viper.gobra.frontend.{Config, PackageInfo}
 import viper.gobra.reporting.BackTranslator.BackTrackInfo
-import viper.gobra.reporting.{BackTranslator, BacktranslatingReporter, ChoppedProgressMessage}
-import viper.gobra.util.{ChopperUtil, GobraExecutionContext}
+import viper.gobra.reporting.{BackTranslator, BacktranslatingReporter, ChoppedProgressMessage, Source, TimeoutError}
+import viper.gobra.util.{ChopperCostModel, ChopperUtil, GobraExecutionContext}
 import viper.silver
+import viper.silver.ast.utility.Chopper
 import viper.silver.verifier.VerificationResult
 import viper.silver.{ast => vpr}
 
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
 import scala.concurrent.Future
+import scala.jdk.CollectionConverters._
 
 object BackendVerifier {
 
@@ -28,7 +32,9 @@ object BackendVerifier {
   case object Success extends Result
   case class Failure(
                     errors: Vector[silver.verifier.VerificationError],
-                    backtrack: BackTranslator.BackTrackInfo
+                    backtrack: BackTranslator.BackTrackInfo,
+                    // members that exceeded their time budget (see `config.memberTimeout`)
+                    timeouts: Vector[TimeoutError] = Vector.empty
                     ) extends Result
 
   def verify(task: Task, pkgInfo: PackageInfo)(config: Config)(implicit executor: GobraExecutionContext): Future[Result] = {
@@ -47,38 +53,211 @@ object BackendVerifier {
       case _ =>
     }
 
+    // methods that have been verified in previous runs are not verified again
+    val resultCache = if (config.resultCache) Some(new ResultCache.Session(task.program, exePaths, config)) else None
+    val program = resultCache.fold(task.program)(_.reduce(config.reporter))
+
+    // members exceeding their time budget
+    val timeouts = new ConcurrentLinkedQueue[TimeoutError]()
+
+    // verification times observed in previous runs, which are only recorded with adaptive chopping
+    val costModel = if (config.adaptiveChopping) ChopperCostModel.load(config.gobraDirectory) else ChopperCostModel.empty
+
+    // budgeted verifications do not use the pool of Silicon instances, as every budget results in a pool key of its own
+    def budgetedVerifier(options: Vector[String]): ViperVerifier = config.backend match {
+      case ViperBackends.SiliconBackend => ViperBackends.SiliconBackend.create(exePaths ++ options, config, pooled = false)
+      case backend => backend.create(exePaths ++ options, config)
+    }
+
     val verificationResults: Future[VerificationResult] =  {
-      val verifier = config.backend.create(exePaths, config)
-      val reporter = BacktranslatingReporter(config.reporter, task.backtrack, config)
-
-      if (!config.shouldChop) {
-        verifier.verify(config.taskName, reporter, task.program)(executor)
-      } else {
-
-        val programs = ChopperUtil.computeChoppedPrograms(task, pkgInfo)(config)
-        val num = programs.size
-        var counter = 0 // verification progress counter
-
-        // Starts verifying all chopped programs in parallel
-        val partialVerificationResults = Future.traverse(programs.zipWithIndex) { case (program, idx) =>
-          val programID = s"${config.taskName}_$idx"
-          verifier.verify(programID, reporter, program)(executor).andThen { _ =>
-            // this block ensures that progress messages are printed in order
-            this.synchronized { counter += 1; config.reporter report ChoppedProgressMessage(counter, num, idx) }
+      val gobraReporter = resultCache.fold(config.reporter)(_.recordingReporter(config.reporter))
+      val reporter = BacktranslatingReporter(gobraReporter, task.backtrack, config)
+
+      config.memberTimeout.filter(_ => supportsTimeouts(config.backend)) match {
+        case Some(budget) =>
+          if (!config.shouldChop) {
+            verifyWithBudget(config.taskName, program, budget, costModel, budgetedVerifier, reporter, timeouts)(config)
+          } else {
+            val programs = ChopperUtil.computeChoppedPrograms(task.copy(program = program), pkgInfo)(config)
+            verifyChoppedPrograms(config.taskName, programs, costModel)(config) { (programID, p) =>
+              verifyWithBudget(programID, p, budget, costModel, budgetedVerifier, reporter, timeouts)(config)
+            }.map(combine)
           }
-        }
 
-        partialVerificationResults map { partialRes =>
-          partialRes.foldLeft[VerificationResult](silver.verifier.Success) {
-            case (acc, silver.verifier.Success) => acc
-            case (silver.verifier.Success, res) => res
-            case (silver.verifier.Failure(l), silver.verifier.Failure(r)) => silver.verifier.Failure(l ++ r)
+        case None =>
+          val verifier = config.backend.create(exePaths, config)
+          if (!config.shouldChop) {
+            verifier.verify(config.taskName, reporter, program)(executor)
+          } else {
+            val programs = ChopperUtil.computeChoppedPrograms(task.copy(program = program), pkgInfo)(config)
+            verifyChoppedPrograms(config.taskName, programs, costModel)(config) { (programID, p) =>
+              verifier.verify(programID, reporter, p)(executor)
+            }.map(combine)
           }
+      }
+    }
+
+    verificationResults.map { result =>
+      resultCache.foreach(_.store())
+      (convertVerificationResult(result, task.backtrack), timeouts.asScala.toVector) match {
+        case (res, Vector()) => res
+        case (Success, ts) => Failure(Vector.empty, task.backtrack, ts)
+        case (f: Failure, ts) => f.copy(timeouts = ts)
+      }
+    }
+  }
+
+  private def combine(results: Vector[VerificationResult]): VerificationResult =
+    results.foldLeft[VerificationResult](silver.verifier.Success) {
+      case (acc, silver.verifier.Success) => acc
+      case (silver.verifier.Success, res) => res
+      case (silver.verifier.Failure(l), silver.verifier.Failure(r)) => silver.verifier.Failure(l ++ r)
+    }
+
+  /** Silicon enforces the time budget of a verification via its `--timeout` option */
+  private def supportsTimeouts(backend: ViperBackend): Boolean = backend match {
+    case ViperBackends.SiliconBackend | _: ViperBackends.ViperServerWithSilicon => true
+    case _ => false
+  }
+
+  /** the members of a program whose verification counts towards its time budget */
+  private def budgetedMembers(program: vpr.Program): Vector[vpr.Member] =
+    (program.methods.filter(_.body.isDefined) ++ program.functions.filter(_.body.isDefined)).toVector
+
+  /**
+    * Collects the messages reported during a budgeted verification, which are only forwarded if the result of the
+    * verification is final. Otherwise, the members would be reported again by the verification of the split program or
+    * by the retry.
+    */
+  private class BufferingReporter extends silver.reporter.Reporter {
+    override val name: String = "buffering_reporter"
+    private val messages = new ConcurrentLinkedQueue[silver.reporter.Message]()
+    override def report(msg: silver.reporter.Message): Unit = messages.add(msg)
+    def forwardTo(reporter: silver.reporter.Reporter): Unit = messages.asScala.foreach(reporter.report)
+  }
+
+  /**
+    * Verifies `program` within `budget` seconds per budgeted member. If the budget is exceeded (or the verification
+    * times observed in previous runs predict that it will be), the program is split into programs with isolated
+    * members, each of which is verified within its own budget, provided that every such program contains fewer
+    * budgeted members. Thus, a single slow member cannot consume the budget of
+    * the other members. If an isolated member exceeds its budget, it is optionally verified again with alternative
+    * Silicon options. Members that still exceed their budget are added to `timeouts`.
+    *
+    * @param verifier creates a verifier that is run with the given additional Silicon options
+    */
+  private[backend] def verifyWithBudget(programID: String, program: vpr.Program, budget: Int, costModel: ChopperCostModel,
+                                        verifier: Vector[String] => ViperVerifier, reporter: silver.reporter.Reporter,
+                                        timeouts: ConcurrentLinkedQueue[TimeoutError])
+                                       (config: Config)(implicit executor: GobraExecutionContext): Future[VerificationResult] = {
+    val members = budgetedMembers(program)
+    val seconds = budget * math.max(1, members.size)
+
+    def run(options: Vector[String]): Future[(VerificationResult, BufferingReporter)] = {
+      val messages = new BufferingReporter
+      verifier(Vector("--timeout", seconds.toString) ++ options)
+        .verify(programID, messages, program)(executor)
+        .map((_, messages))
+    }
+
+    def timedOut(result: VerificationResult): Boolean = result match {
+      case silver.verifier.Failure(errors) => errors.exists(_.isInstanceOf[silver.verifier.TimeoutOccurred])
+      case _ => false
+    }
+
+    // the program is only split if every resulting program contains fewer budgeted members. Otherwise, e.g. if a
+    // method uses a function with a body, the function would be isolated together with the method again and again
+    lazy val isolated: Option[Vector[vpr.Program]] =
+      if (members.size <= 1) None
+      else Some(Chopper.chop(program)(selection = None, bound = None, penalty = ChopperUtil.getPenalty))
+        .filter(_.forall(p => budgetedMembers(p).size < members.size))
+
+    def split(programs: Vector[vpr.Program]): Future[VerificationResult] =
+      verifyChoppedPrograms(programID, programs, costModel, withProgress = false)(config) { (id, p) =>
+        verifyWithBudget(id, p, budget, costModel, verifier, reporter, timeouts)(config)
+      }.map(combine)
+
+    def retry(alternatives: List[Vector[String]], result: VerificationResult, messages: BufferingReporter): Future[VerificationResult] = alternatives match {
+      case options :: rest =>
+        run(options).flatMap {
+          case (res, msgs) if timedOut(res) => retry(rest, res, msgs)
+          case (res, msgs) => msgs.forwardTo(reporter); Future.successful(res)
+        }
+      case Nil =>
+        // the messages of the last attempt are final, they include the results of the members that did not time out
+        messages.forwardTo(reporter)
+        val names = members.map(m => Source.unapply(m).fold(m.name)(info => s"${m.name} (${info.origin.pos})"))
+        timeouts.add(TimeoutError(s"The verification of ${names.mkString(", ")} exceeded its time budget of ${seconds}s"))
+        result match {
+          case silver.verifier.Failure(errors) =>
+            val remaining = errors.filterNot(_.isInstanceOf[silver.verifier.TimeoutOccurred])
+            Future.successful(if (remaining.isEmpty) silver.verifier.Success else silver.verifier.Failure(remaining))
+          case res => Future.successful(res)
+        }
+    }
+
+    val predictedMs = members.flatMap(costModel.predict(config.taskName, _)).sum
+    isolated match {
+      case Some(programs) if predictedMs > seconds * 1000L => split(programs)
+      case _ => run(Vector.empty).flatMap {
+        case (res, messages) if !timedOut(res) => messages.forwardTo(reporter); Future.successful(res)
+        case (res, messages) => isolated match {
+          case Some(programs) => split(programs)
+          case None => retry(if (config.retryTimedOutMembers) alternativeOptions(config) else Nil, res, messages)
         }
       }
     }
+  }
+
+  /** Silicon options that are tried, one at a time, for members exceeding their time budget */
+  private def alternativeOptions(config: Config): List[Vector[String]] = List(
+    if (config.parallelizeBranches) None else Some(Vector("--parallelizeBranches")),
+    if (config.conditionalizePermissions) None else Some(Vector("--conditionalizePermissions")),
+  ).flatten
+
+  /**
+    * Verifies chopped programs such that at most `config.chopParallelism` programs are verified at the same time.
+    * Programs are started in order of decreasing predicted verification time to reduce the time until the last
+    * program finishes. The predicted times are only available with adaptive chopping, otherwise programs are ordered by
+    * their number of members. If `config.chopFailFast` is set, programs that have not been started yet are skipped as
+    * soon as a verification error has been found. The results are returned in the order of `programs`.
+    *
+    * @param programID prefix of the identifiers of the chopped programs
+    * @param withProgress whether the progress is reported to `config.reporter`, which is only the case for the programs
+    *                     chopped from the verified package
+    */
+  private def verifyChoppedPrograms(programID: String, programs: Vector[vpr.Program], costModel: ChopperCostModel,
+                                    withProgress: Boolean = true)(config: Config)
+                                   (verify: (String, vpr.Program) => Future[VerificationResult])
+                                   (implicit executor: GobraExecutionContext): Future[Vector[VerificationResult]] = {
+    val num = programs.size
+    var counter = 0 // verification progress counter
+    val failed = new AtomicBoolean(false)
+
+    val queue = new ConcurrentLinkedQueue[(vpr.Program, Int)](
+      programs.zipWithIndex.sortBy { case (program, _) => -costModel.predict(config.taskName, program) }.asJava
+    )
+
+    def reportProgress(idx: Int): Unit =
+      // this block ensures that progress messages are printed in order
+      if (withProgress) this.synchronized { counter += 1; config.reporter report ChoppedProgressMessage(counter, num, idx) }
+
+    def worker(): Future[Vector[(Int, VerificationResult)]] = Option(queue.poll()) match {
+      case Some((_, idx)) if config.chopFailFast && failed.get() =>
+        // skipped programs count towards the progress such that it still reaches `num`
+        reportProgress(idx)
+        worker()
+      case Some((program, idx)) =>
+        verify(s"${programID}_$idx", program).andThen { _ => reportProgress(idx) }.flatMap { res =>
+          if (res != silver.verifier.Success) failed.set(true)
+          worker().map((idx, res) +: _)
+        }
+      case None => Future.successful(Vector.empty)
+    }
 
-    verificationResults.map(convertVerificationResult(_, task.backtrack))
+    // each worker verifies one program at a time until the queue is empty
+    val workers = Vector.fill(math.max(1, math.min(config.chopParallelism, num)))(worker())
+    Future.sequence(workers).map(_.flatten.sortBy(_._1).map(_._2))
   }
 
   /**
@@ -0,0 +1,197 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import com.typesafe.scalalogging.LazyLogging
+import viper.gobra.GoVerifier
+import viper.gobra.frontend.Config
+import viper.gobra.reporting.{GobraEntitySuccessMessage, GobraMessage, GobraReporter, Source}
+import viper.gobra.util.DiskCache
+import viper.silver.{ast => vpr}
+
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.mutable
+import scala.jdk.CollectionConverters._
+import scala.sys.process.{Process, ProcessLogger}
+import scala.util.Try
+
+/**
+  * Verification result cache that persists the keys of successfully verified Viper methods in the Gobra directory.
+  * The key of a method is a hash of the method itself, of the specifications of all methods it (transitively) calls,
+  * of all functions and predicates it (transitively) depends on, of all domains and fields, and of the verifier
+  * settings. Since Viper verifies methods modularly, a method whose key has been recorded before verifies again.
+  * Such methods are replaced by abstract methods before verification and are reported as cached.
+  *
+  * The verifier settings comprise every option that is passed to the backend, the chopping and timeout options, and
+  * the versions of Gobra, Silicon, and the solvers that are used. The cache is only used if enabled via --resultCache.
+  */
+object ResultCache extends LazyLogging {
+
+  val FileName = "verified-members.txt"
+
+  /** has to be incremented whenever the computation of keys changes */
+  val FormatVersion: Int = 2
+
+  /** maximum number of keys that are kept, the most recently verified ones are kept */
+  val MaxEntries: Int = 100000
+
+  private val Header: String = s"# Keys of Viper methods verified by Gobra, format $FormatVersion"
+
+  /**
+    * options and tool versions that affect the verification result of a method in addition to the method and its
+    * dependencies. `exePaths` are the options passing the paths of the solvers to the backend.
+    */
+  def settings(config: Config, exePaths: Vector[String]): String = {
+    val z3Exe = config.z3Exe.orElse(sys.env.get("Z3_EXE")).getOrElse("z3")
+    val boogieExe = config.boogieExe.orElse(sys.env.get("BOOGIE_EXE"))
+    Vector(
+      s"gobra=${GoVerifier.version}",
+      s"silicon=${viper.silicon.BuildInfo.projectVersion} ${viper.silicon.BuildInfo.gitRevision}",
+      s"backend=${config.backend.getClass.getName}",
+      s"exePaths=${exePaths.mkString(" ")}",
+      s"z3=$z3Exe ${toolVersion(z3Exe, "-version")}",
+      s"boogie=${boogieExe.map(exe => s"$exe ${toolVersion(exe, "/version")}").getOrElse("")}",
+      s"mce=${config.mceMode}",
+      s"conditionalizePermissions=${config.conditionalizePermissions}",
+      s"assumeInjectivityOnInhale=${config.assumeInjectivityOnInhale}",
+      s"parallelizeBranches=${config.parallelizeBranches}",
+      s"chop=${config.shouldChop} ${config.choppingUpperBound} ${config.adaptiveChopping} ${config.chopFailFast}",
+      s"timeouts=${config.packageTimeout} ${config.memberTimeout} ${config.retryTimedOutMembers}",
+    ).mkString("\n")
+  }
+
+  private val toolVersions = new ConcurrentHashMap[(String, String), String]()
+
+  /** returns the output of `exe versionFlag`, which is computed once per process, or "unknown" if it cannot be run */
+  private def toolVersion(exe: String, versionFlag: String): String =
+    toolVersions.computeIfAbsent((exe, versionFlag), _ =>
+      Try(Process(Seq(exe, versionFlag)).!!(ProcessLogger(_ => ())).trim).getOrElse("unknown")
+    )
+
+  /** returns the key of every method with a body in `program` */
+  def keys(program: vpr.Program, settings: String): Map[String, String] = {
+    val methods = program.methods.map(m => m.name -> m).toMap
+    val functions = program.functions.map(f => f.name -> f).toMap
+    val predicates = program.predicates.map(p => p.name -> p).toMap
+
+    // domain axioms and fields are global, thus every method depends on all of them
+    val global = DiskCache.hash(settings +: (program.domains ++ program.fields).map(_.toString))
+
+    /** returns the part of a member that the members referring to it depend on */
+    def interface(ref: (Char, String)): Seq[vpr.Node] = ref match {
+      case ('m', name) => methods.get(name).toSeq.flatMap(m => m.formalArgs ++ m.formalReturns ++ m.pres ++ m.posts)
+      case ('f', name) => functions.get(name).toSeq
+      case (_, name) => predicates.get(name).toSeq
+    }
+
+    def references(nodes: Seq[vpr.Node]): Seq[(Char, String)] = nodes.flatMap(_.deepCollect {
+      case c: vpr.MethodCall => ('m', c.methodName)
+      case f: vpr.FuncApp => ('f', f.funcname)
+      case p: vpr.PredicateAccess => ('p', p.predicateName)
+    })
+
+    val interfaceRefs = mutable.HashMap.empty[(Char, String), Seq[(Char, String)]]
+    val interfaceTexts = mutable.HashMap.empty[(Char, String), String]
+
+    def transitiveReferences(m: vpr.Method): Set[(Char, String)] = {
+      val visited = mutable.Set.empty[(Char, String)]
+      val worklist = mutable.Stack.from(references(Seq(m)))
+      while (worklist.nonEmpty) {
+        val ref = worklist.pop()
+        if (visited.add(ref)) worklist.pushAll(interfaceRefs.getOrElseUpdate(ref, references(interface(ref))))
+      }
+      visited.toSet
+    }
+
+    methods.values.filter(_.body.isDefined).map { m =>
+      val deps = transitiveReferences(m).toVector.sorted.map { ref =>
+        s"${ref._1} ${ref._2}\n${interfaceTexts.getOrElseUpdate(ref, interface(ref).mkString("\n"))}"
+      }
+      m.name -> DiskCache.hash(global +: m.toString +: deps)
+    }.toMap
+  }
+
+  /** returns the keys stored in `gobraDirectory` */
+  def load(gobraDirectory: Path): Vector[String] = {
+    val file = gobraDirectory.resolve(FileName)
+    if (!Files.exists(file)) Vector.empty
+    else {
+      val lines = Files.readAllLines(file, UTF_8).asScala.toVector
+      // files in a different format are discarded
+      if (lines.headOption.contains(Header)) lines.tail else Vector.empty
+    }
+  }
+
+  /** adds `keys` to the keys stored in `gobraDirectory`. Returns true iff the file was written. */
+  def record(gobraDirectory: Path, keys: Iterable[String]): Boolean = {
+    try {
+      Files.createDirectories(gobraDirectory)
+      val all = (keys.toVector ++ load(gobraDirectory)).distinct.take(MaxEntries)
+      // concurrent runs might both write the file, in which case the keys of one run are lost
+      val tmp = Files.createTempFile(gobraDirectory, FileName, ".tmp")
+      Files.write(tmp, (Header +: all).asJava, UTF_8)
+      Files.move(tmp, gobraDirectory.resolve(FileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      true
+    } catch {
+      case _: java.io.IOException => false
+    }
+  }
+
+  /** the use of the result cache during the verification of a single program */
+  class Session(program: vpr.Program, exePaths: Vector[String], config: Config) {
+
+    private val keys: Map[String, String] = ResultCache.keys(program, settings(config, exePaths))
+
+    /** names of the methods that are not verified again */
+    val cachedMethods: Set[String] = {
+      val verified = load(config.gobraDirectory).toSet
+      keys.collect { case (name, key) if verified.contains(key) => name }.toSet
+    }
+
+    private val verifiedKeys: java.util.Set[String] = ConcurrentHashMap.newKeySet()
+
+    /** replaces the cached methods by abstract methods and reports them as verified */
+    def reduce(reporter: GobraReporter): vpr.Program = {
+      if (cachedMethods.isEmpty) program
+      else {
+        val methods = program.methods.map {
+          case m if cachedMethods.contains(m.name) =>
+            Source.unapply(m).foreach(info => reporter.report(GobraEntitySuccessMessage(config.taskName, "cache", m, info, 0, cached = true)))
+            m.copy(body = None)(m.pos, m.info, m.errT)
+          case m => m
+        }
+        logger.debug(s"${cachedMethods.size} of ${keys.size} method(s) are not verified again")
+        program.copy(methods = methods)(program.pos, program.info, program.errT)
+      }
+    }
+
+    /**
+      * Returns a reporter that records the methods that have been verified successfully and that drops the results
+      * of the abstract methods introduced by `reduce`, which have already been reported as cached.
+      */
+    def recordingReporter(underlying: GobraReporter): GobraReporter = new GobraReporter {
+      override val name: String = underlying.name
+
+      override def report(msg: GobraMessage): Unit = msg match {
+        case m: GobraEntitySuccessMessage if cachedMethods.contains(m.entity.name) =>
+        case m: GobraEntitySuccessMessage =>
+          keys.get(m.entity.name).foreach(verifiedKeys.add)
+          underlying.report(m)
+        case _ => underlying.report(msg)
+      }
+    }
+
+    /** stores the keys of the methods that have been verified successfully */
+    def store(): Unit = {
+      if (!verifiedKeys.isEmpty && !record(config.gobraDirectory, verifiedKeys.asScala)) {
+        logger.error(s"Could not write the verification result cache to ${config.gobraDirectory}.")
+      }
+    }
+  }
+}
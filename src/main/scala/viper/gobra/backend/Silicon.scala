@@ -14,18 +14,36 @@ import viper.silver.verifier.{Failure, Success, VerificationResult}
 
 import scala.concurrent.Future
 
-class Silicon(commandLineArguments: Seq[String]) extends ViperVerifier {
+/**
+  * Verifies programs with Silicon. If `pooled` is set, the Silicon instance is taken from and returned to
+  * [[SiliconPool]], otherwise a fresh instance is started for and stopped after every verification.
+  */
+class Silicon(commandLineArguments: Seq[String], pooled: Boolean = true) extends ViperVerifier {
 
   override def verify(programID: String, reporter: Reporter, program: Program)(executor: GobraExecutionContext): Future[VerificationResult] = {
     // directly declaring the parameter implicit somehow does not work as the compiler is unable to spot the inheritance
     implicit val _executor: GobraExecutionContext = executor
     Future {
-      val backend: silicon.Silicon = silicon.Silicon.fromPartialCommandLineArguments(commandLineArguments, reporter)
-      
+      // `finish` is called with whether the instance is still in a consistent state after the verification
+      val (backend, finish): (silicon.Silicon, Boolean => Unit) = if (pooled) {
+        val instance = SiliconPool.acquire(commandLineArguments, reporter)
+        (instance.backend, (consistent: Boolean) => if (consistent) SiliconPool.release(instance) else SiliconPool.discard(instance))
+      } else {
+        val instance = silicon.Silicon.fromPartialCommandLineArguments(commandLineArguments, reporter)
+        instance.start()
+        (instance, (_: Boolean) => instance.stop())
+      }
+
       val startTime = System.currentTimeMillis()
-      backend.start()
-      val result = backend.verify(program)
-      backend.stop()
+      val result = try {
+        backend.verify(program)
+      } catch {
+        case e: Throwable =>
+          // the instance might be in an inconsistent state, thus we do not return it to the pool
+          finish(false)
+          throw e
+      }
+      finish(true)
 
       result match {
         case Success =>
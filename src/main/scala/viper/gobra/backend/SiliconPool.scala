@@ -0,0 +1,136 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import viper.silicon
+import viper.silver.reporter.{Message, NoopReporter, Reporter}
+
+import scala.collection.mutable
+
+/**
+  * Pool of started Silicon instances. Instances are keyed by the command-line arguments they have been created with
+  * and are reused across verifications, which avoids repeatedly initializing Silicon and spawning Z3 processes.
+  * An instance is used by at most one verification at a time.
+  *
+  * Silicon resets its program-specific state (e.g. symbols, axioms, and the prover's assertion stack) at the beginning
+  * of every verification. To bound the state that nevertheless accumulates in the Z3 process, an instance is stopped
+  * instead of being returned to the pool after [[SiliconPool.MaxVerificationsPerInstance]] verifications; the next
+  * verification then starts a fresh instance. To bound the number of idle Z3 processes in long-running processes (e.g.
+  * ViperServer or the IDE), at most [[SiliconPool.MaxIdleInstancesPerKey]] instances are kept per key and instances
+  * that have been idle for longer than [[SiliconPool.IdleTimeoutMs]] are stopped.
+  */
+object SiliconPool {
+
+  /** maximum number of idle instances kept per combination of command-line arguments */
+  val MaxIdleInstancesPerKey: Int = 4
+
+  /** number of verifications after which an instance is stopped instead of being returned to the pool */
+  val MaxVerificationsPerInstance: Int = 100
+
+  /** idle instances are stopped after this many milliseconds */
+  val IdleTimeoutMs: Long = 60 * 1000
+
+  /**
+    * Silicon's reporter is fixed at construction time. Therefore, pooled instances report to this reporter, which
+    * forwards all messages to the reporter of the verification currently using the instance.
+    */
+  private class ForwardingReporter extends Reporter {
+    override val name: String = "forwarding_reporter"
+    @volatile var target: Reporter = NoopReporter
+    override def report(msg: Message): Unit = target.report(msg)
+  }
+
+  class PooledSilicon private[SiliconPool](val commandLineArguments: Seq[String]) {
+    private val forwardingReporter = new ForwardingReporter
+    val backend: silicon.Silicon = silicon.Silicon.fromPartialCommandLineArguments(commandLineArguments, forwardingReporter)
+    backend.start()
+
+    /** number of verifications this instance has been used for, only accessed while holding the pool's lock */
+    private[SiliconPool] var verifications: Int = 0
+    /** time at which this instance has been returned to the pool, only accessed while holding the pool's lock */
+    private[SiliconPool] var releasedAt: Long = 0
+
+    private[SiliconPool] def attach(reporter: Reporter): Unit = forwardingReporter.target = reporter
+    private[SiliconPool] def detach(): Unit = forwardingReporter.target = NoopReporter
+  }
+
+  /** idle instances per key, the most recently released instance comes first. Guarded by `this` */
+  private val idleInstances: mutable.Map[Seq[String], List[PooledSilicon]] = mutable.HashMap.empty
+
+  /** returns an idle instance created with `commandLineArguments` or, if none exists, starts a new one */
+  def acquire(commandLineArguments: Seq[String], reporter: Reporter): PooledSilicon = {
+    val idle = synchronized {
+      val res = idleInstances.get(commandLineArguments).flatMap(_.headOption)
+      res.foreach(instance => removeIdle(instance))
+      res
+    }
+    stopExpired()
+    val instance = idle.getOrElse(new PooledSilicon(commandLineArguments))
+    instance.attach(reporter)
+    instance
+  }
+
+  /**
+    * returns `instance` to the pool such that it can be used for the next verification. The instance is stopped
+    * instead if it has reached the maximum number of verifications or if the pool is full.
+    */
+  def release(instance: PooledSilicon): Unit = {
+    instance.detach()
+    val pooled = synchronized {
+      instance.verifications += 1
+      val idle = idleInstances.getOrElse(instance.commandLineArguments, Nil)
+      val keep = instance.verifications < MaxVerificationsPerInstance && idle.size < MaxIdleInstancesPerKey
+      if (keep) {
+        instance.releasedAt = System.currentTimeMillis()
+        idleInstances.update(instance.commandLineArguments, instance :: idle)
+      }
+      keep
+    }
+    if (!pooled) instance.backend.stop()
+    stopExpired()
+  }
+
+  /** stops `instance` without returning it to the pool, e.g., because it is in an inconsistent state after a crash */
+  def discard(instance: PooledSilicon): Unit = {
+    instance.detach()
+    instance.backend.stop()
+  }
+
+  /** returns the number of idle instances created with `commandLineArguments` */
+  def idleCount(commandLineArguments: Seq[String]): Int = synchronized {
+    idleInstances.get(commandLineArguments).fold(0)(_.size)
+  }
+
+  /** stops all idle instances. Instances that are currently in use are not affected */
+  def shutdown(): Unit = {
+    val idle = synchronized {
+      val res = idleInstances.values.flatten.toVector
+      idleInstances.clear()
+      res
+    }
+    idle.foreach(_.backend.stop())
+  }
+
+  /** has to be called while holding the lock */
+  private def removeIdle(instance: PooledSilicon): Unit =
+    idleInstances.get(instance.commandLineArguments).map(_.filterNot(_ eq instance)) match {
+      case Some(Nil) => idleInstances.remove(instance.commandLineArguments)
+      case Some(remaining) => idleInstances.update(instance.commandLineArguments, remaining)
+      case None =>
+    }
+
+  /** stops all instances that have been idle for longer than `IdleTimeoutMs` */
+  private def stopExpired(): Unit = {
+    val now = System.currentTimeMillis()
+    val expired = synchronized {
+      val res = idleInstances.values.flatten.filter(now - _.releasedAt > IdleTimeoutMs).toVector
+      res.foreach(removeIdle)
+      res
+    }
+    expired.foreach(_.backend.stop())
+  }
+}
@@ -19,7 +19,11 @@ trait ViperBackend {
 object ViperBackends {
 
   object SiliconBackend extends ViperBackend {
-    def create(exePaths: Vector[String], config: Config)(implicit executor: GobraExecutionContext): Silicon = {
+    def create(exePaths: Vector[String], config: Config)(implicit executor: GobraExecutionContext): Silicon =
+      create(exePaths, config, pooled = true)
+
+    /** creates a Silicon verifier that takes its instances from [[SiliconPool]] iff `pooled` is set */
+    def create(exePaths: Vector[String], config: Config, pooled: Boolean)(implicit executor: GobraExecutionContext): Silicon = {
 
       var options: Vector[String] = Vector.empty
       options ++= Vector("--logLevel", "ERROR")
@@ -41,7 +45,7 @@ object ViperBackends {
       }
       options ++= exePaths
 
-      new Silicon(options)
+      new Silicon(options, pooled)
     }
   }
 
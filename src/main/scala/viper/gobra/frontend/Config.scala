@@ -70,6 +70,17 @@ object ConfigDefaults {
   lazy val DefaultNoVerify: Boolean = false
   lazy val DefaultNoStreamErrors: Boolean = false
   lazy val DefaultParseAndTypeCheckMode: TaskManagerMode = TaskManagerMode.Parallel
+  lazy val DefaultAdaptiveChopping: Boolean = false
+  lazy val DefaultChopParallelism: Int = Runtime.getRuntime.availableProcessors()
+  lazy val DefaultChopFailFast: Boolean = false
+  lazy val DefaultStreamResults: Option[Path] = None
+  lazy val DefaultFrontendCacheSize: Option[Int] = None
+  lazy val DefaultCacheDesugaredProgram: Boolean = false
+  lazy val DefaultCacheViperEncoding: Boolean = false
+  lazy val DefaultResultCache: Boolean = false
+  lazy val DefaultMemberTimeout: Option[Int] = None
+  lazy val DefaultRetryTimedOutMembers: Boolean = false
+  lazy val DefaultReleaseFrontend: Boolean = false
 }
 
 // More-complete exhale modes
@@ -132,6 +143,28 @@ case class Config(
                    noVerify: Boolean = ConfigDefaults.DefaultNoVerify,
                    noStreamErrors: Boolean = ConfigDefaults.DefaultNoStreamErrors,
                    parseAndTypeCheckMode: TaskManagerMode = ConfigDefaults.DefaultParseAndTypeCheckMode,
+                   // if enabled, chopped programs are balanced by their verification time predicted from previous runs
+                   adaptiveChopping: Boolean = ConfigDefaults.DefaultAdaptiveChopping,
+                   // maximum number of chopped programs that are verified concurrently
+                   chopParallelism: Int = ConfigDefaults.DefaultChopParallelism,
+                   // if enabled, chopped programs that have not been started yet are skipped as soon as an error has been found
+                   chopFailFast: Boolean = ConfigDefaults.DefaultChopFailFast,
+                   // if defined, the result of every verified member is written as NDJSON to this file as soon as it is available
+                   streamResults: Option[Path] = ConfigDefaults.DefaultStreamResults,
+                   // maximum number of entries in each of the parser and type-checker caches, None means unbounded
+                   frontendCacheSize: Option[Int] = ConfigDefaults.DefaultFrontendCacheSize,
+                   // if enabled, the desugared and transformed program is stored in and loaded from the Gobra directory
+                   cacheDesugaredProgram: Boolean = ConfigDefaults.DefaultCacheDesugaredProgram,
+                   // if enabled, the Viper encoding of a program is reused if the same program has been encoded before
+                   cacheViperEncoding: Boolean = ConfigDefaults.DefaultCacheViperEncoding,
+                   // if enabled, methods that have been verified in previous runs and whose dependencies are unchanged are not verified again
+                   resultCache: Boolean = ConfigDefaults.DefaultResultCache,
+                   // time budget in seconds for the verification of a single Viper member, None means unbounded
+                   memberTimeout: Option[Int] = ConfigDefaults.DefaultMemberTimeout,
+                   // if enabled, members exceeding their time budget are verified again with alternative Silicon options
+                   retryTimedOutMembers: Boolean = ConfigDefaults.DefaultRetryTimedOutMembers,
+                   // if enabled, the parse ASTs and type-checkers of a package and its imports are removed from the frontend caches after desugaring
+                   releaseFrontend: Boolean = ConfigDefaults.DefaultReleaseFrontend,
 ) {
 
   def merge(other: Config): Config = {
@@ -178,7 +211,18 @@ case class Config(
       enableLazyImports = enableLazyImports || other.enableLazyImports,
       noVerify = noVerify || other.noVerify,
       noStreamErrors = noStreamErrors || other.noStreamErrors,
-      parseAndTypeCheckMode = parseAndTypeCheckMode
+      parseAndTypeCheckMode = parseAndTypeCheckMode,
+      adaptiveChopping = adaptiveChopping || other.adaptiveChopping,
+      chopParallelism = math.min(chopParallelism, other.chopParallelism),
+      chopFailFast = chopFailFast || other.chopFailFast,
+      streamResults = streamResults orElse other.streamResults,
+      frontendCacheSize = frontendCacheSize orElse other.frontendCacheSize,
+      cacheDesugaredProgram = cacheDesugaredProgram || other.cacheDesugaredProgram,
+      cacheViperEncoding = cacheViperEncoding || other.cacheViperEncoding,
+      resultCache = resultCache || other.resultCache,
+      memberTimeout = (memberTimeout ++ other.memberTimeout).minOption, // take minimum
+      retryTimedOutMembers = retryTimedOutMembers || other.retryTimedOutMembers,
+      releaseFrontend = releaseFrontend || other.releaseFrontend
     )
   }
 
@@ -230,6 +274,17 @@ case class BaseConfig(gobraDirectory: Path = ConfigDefaults.DefaultGobraDirector
                       noVerify: Boolean = ConfigDefaults.DefaultNoVerify,
                       noStreamErrors: Boolean = ConfigDefaults.DefaultNoStreamErrors,
                       parseAndTypeCheckMode: TaskManagerMode = ConfigDefaults.DefaultParseAndTypeCheckMode,
+                      adaptiveChopping: Boolean = ConfigDefaults.DefaultAdaptiveChopping,
+                      chopParallelism: Int = ConfigDefaults.DefaultChopParallelism,
+                      chopFailFast: Boolean = ConfigDefaults.DefaultChopFailFast,
+                      streamResults: Option[Path] = ConfigDefaults.DefaultStreamResults,
+                      frontendCacheSize: Option[Int] = ConfigDefaults.DefaultFrontendCacheSize,
+                      cacheDesugaredProgram: Boolean = ConfigDefaults.DefaultCacheDesugaredProgram,
+                      cacheViperEncoding: Boolean = ConfigDefaults.DefaultCacheViperEncoding,
+                      resultCache: Boolean = ConfigDefaults.DefaultResultCache,
+                      memberTimeout: Option[Int] = ConfigDefaults.DefaultMemberTimeout,
+                      retryTimedOutMembers: Boolean = ConfigDefaults.DefaultRetryTimedOutMembers,
+                      releaseFrontend: Boolean = ConfigDefaults.DefaultReleaseFrontend,
                      ) {
   def shouldParse: Boolean = true
   def shouldTypeCheck: Boolean = !shouldParseOnly
@@ -285,6 +340,17 @@ trait RawConfig {
     noVerify = baseConfig.noVerify,
     noStreamErrors = baseConfig.noStreamErrors,
     parseAndTypeCheckMode = baseConfig.parseAndTypeCheckMode,
+    adaptiveChopping = baseConfig.adaptiveChopping,
+    chopParallelism = baseConfig.chopParallelism,
+    chopFailFast = baseConfig.chopFailFast,
+    streamResults = baseConfig.streamResults,
+    frontendCacheSize = baseConfig.frontendCacheSize,
+    cacheDesugaredProgram = baseConfig.cacheDesugaredProgram,
+    cacheViperEncoding = baseConfig.cacheViperEncoding,
+    resultCache = baseConfig.resultCache,
+    memberTimeout = baseConfig.memberTimeout,
+    retryTimedOutMembers = baseConfig.retryTimedOutMembers,
+    releaseFrontend = baseConfig.releaseFrontend,
   )
 }
 
@@ -680,6 +746,86 @@ class ScallopGobraConfig(arguments: Seq[String], isInputOptional: Boolean = fals
     case _ => ConfigDefaults.DefaultParseAndTypeCheckMode
   }
 
+  val adaptiveChopping: ScallopOption[Boolean] = opt[Boolean](
+    name = "adaptiveChop",
+    descr = "Balance the programs produced by --chop by their verification time as observed in previous runs instead of their syntactic size. The observed times are stored in the Gobra directory.",
+    default = Some(ConfigDefaults.DefaultAdaptiveChopping),
+    noshort = true,
+  )
+
+  val chopParallelism: ScallopOption[Int] = opt[Int](
+    name = "chopParallelism",
+    descr = "Maximum number of programs produced by --chop that are verified concurrently. The default is the number of available processors.",
+    default = Some(ConfigDefaults.DefaultChopParallelism),
+    noshort = true,
+    validate = _ > 0
+  )
+
+  val chopFailFast: ScallopOption[Boolean] = opt[Boolean](
+    name = "chopFailFast",
+    descr = "Skip the verification of the remaining programs produced by --chop as soon as a verification error has been found.",
+    default = Some(ConfigDefaults.DefaultChopFailFast),
+    noshort = true,
+  )
+
+  val streamResults: ScallopOption[File] = opt[File](
+    name = "streamResults",
+    descr = "File or named pipe to which the result of every verified member is written in NDJSON format as soon as it is available",
+    default = None,
+    noshort = true
+  )
+
+  val frontendCacheSize: ScallopOption[Int] = opt[Int](
+    name = "frontendCacheSize",
+    descr = "Maximum number of entries kept in each of the parser and type-checker caches (see --cacheParserAndTypeChecker). The least recently used entries are evicted first. By default, the caches are unbounded.",
+    default = ConfigDefaults.DefaultFrontendCacheSize,
+    validate = _ > 0,
+    noshort = true,
+  )
+
+  val cacheDesugaredProgram: ScallopOption[Boolean] = opt[Boolean](
+    name = "cacheDesugaredProgram",
+    descr = "Store the desugared program of a package in the Gobra directory (see --gobraDirectory) and reuse it in subsequent runs if neither the sources of the package and its imports nor the relevant options have changed.",
+    default = Some(ConfigDefaults.DefaultCacheDesugaredProgram),
+    noshort = true,
+  )
+
+  val cacheViperEncoding: ScallopOption[Boolean] = opt[Boolean](
+    name = "cacheViperEncoding",
+    descr = "Reuse the Viper encoding of a program if the same program, referring to the same parse AST, has been encoded before in the same process (e.g. by the IDE server). Encodings are kept in memory only.",
+    default = Some(ConfigDefaults.DefaultCacheViperEncoding),
+    noshort = true,
+  )
+
+  val resultCache: ScallopOption[Boolean] = opt[Boolean](
+    name = "resultCache",
+    descr = "Record the Viper methods that have been verified successfully in the Gobra directory (see --gobraDirectory) and do not verify them again unless they, the specifications, functions, predicates, domains, or fields they depend on, the backend options, or the versions of the backend and its solvers have changed.",
+    default = Some(ConfigDefaults.DefaultResultCache),
+    noshort = true,
+  )
+
+  val memberTimeout: ScallopOption[Int] = opt[Int](
+    name = "memberTimeout",
+    descr = "Time budget in seconds per verified Viper method or function (only supported by Silicon-based backends). A program whose budget is exceeded, or whose predicted verification time (see --adaptiveChop) exceeds its budget, is split into programs with isolated members. Members exceeding their budget in isolation are reported as timeouts.",
+    default = ConfigDefaults.DefaultMemberTimeout,
+    validate = _ > 0,
+    noshort = true,
+  )
+
+  val retryTimedOutMembers: ScallopOption[Boolean] = opt[Boolean](
+    name = "retryTimedOutMembers",
+    descr = "Verify members that exceed their time budget (see --memberTimeout) again with alternative Silicon options (--parallelizeBranches, --conditionalizePermissions) before reporting a timeout.",
+    default = Some(ConfigDefaults.DefaultRetryTimedOutMembers),
+    noshort = true,
+  )
+
+  val releaseFrontend: ScallopOption[Boolean] = opt[Boolean](
+    name = "releaseFrontend",
+    descr = "Memory-bounded mode: remove the parse ASTs and type-checkers of the verified package and its imports from the parser and type-checker caches (see --cacheParserAndTypeChecker) as soon as the package has been desugared, such that they are not retained during encoding and verification.",
+    default = Some(ConfigDefaults.DefaultReleaseFrontend),
+    noshort = true,
+  )
+
   /**
     * Exception handling
     */
@@ -827,5 +973,16 @@ class ScallopGobraConfig(arguments: Seq[String], isInputOptional: Boolean = fals
     noVerify = noVerify(),
     noStreamErrors = noStreamErrors(),
     parseAndTypeCheckMode = parseAndTypeCheckMode(),
+    adaptiveChopping = adaptiveChopping(),
+    chopParallelism = chopParallelism(),
+    chopFailFast = chopFailFast(),
+    streamResults = streamResults.toOption.map(_.toPath),
+    frontendCacheSize = frontendCacheSize.toOption,
+    cacheDesugaredProgram = cacheDesugaredProgram(),
+    cacheViperEncoding = cacheViperEncoding(),
+    resultCache = resultCache(),
+    memberTimeout = memberTimeout.toOption,
+    retryTimedOutMembers = retryTimedOutMembers(),
+    releaseFrontend = releaseFrontend(),
   )
 }
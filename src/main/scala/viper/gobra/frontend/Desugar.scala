@@ -4528,15 +4528,11 @@ object Desugar extends LazyLogging {
         case n: PAnd => for {l <- goA(n.left); r <- goA(n.right)} yield in.SepAnd(l, r)(src)
 
         case n: PAccess => for {e <- accessibleD(ctx, info)(n.exp); p <- permissionD(ctx, info)(n.perm)} yield in.Access(e, p)(src)
-        case n: PPredicateAccess => predicateCallD(ctx, info)(n.pred, n.perm)
+        case n: PPredicateAccess => predicateCallD(ctx, info)(n.pred, Some(n.perm))
 
         case n: PInvoke =>
           // a predicate invocation corresponds to a predicate access with full permissions
-          // register the full permission AST node in the position manager such that its meta information
-          // is retrievable in predicateCallD
-          val perm = PFullPerm()
-          pom.positions.dupPos(n, perm)
-          predicateCallD(ctx, info)(n, perm)
+          predicateCallD(ctx, info)(n, None)
 
         case PForall(vars, triggers, body) =>
           for { (newVars, newTriggers, newBody) <- quantifierD(ctx, info)(vars, triggers, body)(ctx => assertionD(ctx, info)) }
@@ -4550,15 +4546,21 @@ object Desugar extends LazyLogging {
       }
     }
 
-    def predicateCallD(ctx: FunctionContext, info: TypeInfo)(n: PInvoke, perm: PExpression): Writer[in.Assertion] = {
+    /**
+      * `perm` is the permission amount of the predicate access. If absent, the access is with full permissions, which get
+      * the meta information of `n`. Thus, no AST node has to be created and registered in the position manager, whose
+      * position table would otherwise grow with every desugaring of a cached AST.
+      */
+    def predicateCallD(ctx: FunctionContext, info: TypeInfo)(n: PInvoke, perm: Option[PExpression]): Writer[in.Assertion] = {
 
       val src: Meta = meta(n, info)
+      def permD: Writer[in.Expr] = perm.fold[Writer[in.Expr]](unit(in.FullPerm(src)))(permissionD(ctx, info)(_))
 
       info.resolve(n) match {
         case Some(p: ap.PredicateCall) =>
           for {
             predAcc <- predicateCallAccD(ctx, info)(p)(src)
-            p <- permissionD(ctx, info)(perm)
+            p <- permD
           } yield in.Access(in.Accessible.Predicate(predAcc), p)(src)
 
         case Some(b: ap.PredExprInstance) =>
@@ -4567,7 +4569,7 @@ object Desugar extends LazyLogging {
             args <- sequence(n.args.map(exprD(ctx, info)(_)))
             implicitlyConvertedArgs = arguments(b.typ, args)
             predExprInstance = in.PredExprInstance(base, implicitlyConvertedArgs)(src)
-            p <- permissionD(ctx, info)(perm)
+            p <- permD
           } yield in.Access(in.Accessible.PredExpr(predExprInstance), p)(src)
 
         case _ => exprD(ctx, info)(n) map (in.ExprAssertion(_)(src)) // a boolean expression
@@ -20,12 +20,11 @@ import scalaz.EitherT
 import scalaz.Scalaz.futureInstance
 import viper.gobra.frontend.GobraParser.{ExprOnlyContext, ImportDeclContext, PreambleContext, SourceFileContext, SpecMemberContext, StmtOnlyContext, TypeOnlyContext}
 import viper.gobra.frontend.PackageResolver.{AbstractImport, AbstractPackage, BuiltInImport, RegularImport, RegularPackage}
-import viper.gobra.util.{GobraExecutionContext, Job, TaskManager, Violation}
+import viper.gobra.util.{GobraExecutionContext, Job, LruCache, TaskManager, Violation}
 import viper.silver.ast.SourcePosition
 
 import scala.collection.mutable.ListBuffer
 import java.security.MessageDigest
-import java.util.concurrent.{ConcurrentHashMap, ConcurrentMap}
 import scala.concurrent.Future
 
 
@@ -129,15 +128,14 @@ object Parser extends LazyLogging {
         // introduce additional synchronization
         val startMs = System.currentTimeMillis()
         for {
-          parsedProgram <- Parser.process(preprocessedSources, pkgInfo, specOnly = specOnly)(config)
-          postprocessedProgram <- Parser.postprocess(Right((preprocessedSources, parsedProgram)), specOnly = specOnly)(config)
+          postprocessedProgram <- Parser.process(preprocessedSources, pkgInfo, specOnly = specOnly)(config)
           _ = logger.trace {
             val parsingDurationMs = System.currentTimeMillis() - startMs
             val parsingDurationS = f"${parsingDurationMs / 1000f}%.1f"
             val preambleParsingRatio = f"${100f * preambleParsingDurationMs / parsingDurationMs}%.1f"
             s"parsing ${pkgInfo.id} done (took ${parsingDurationS}s; parsing preamble overhead is ${preambleParsingRatio}%)"
           }
-        } yield (pkgSources, postprocessedProgram._2) // we use `pkgSources` as the preprocessing of sources should be transparent from the outside
+        } yield (pkgSources, postprocessedProgram) // we use `pkgSources` as the preprocessing of sources should be transparent from the outside
       }
     }
 
@@ -206,7 +204,7 @@ object Parser extends LazyLogging {
     */
   private def processPreamble(preprocessedSource: Source)(config: Config): Either[Vector[ParserError], PPreamble] = {
     def parseSource(preprocessedSource: Source): Either[Vector[ParserError], PPreamble] = {
-      val positions = new Positions
+      val positions = new CompactPositions
       val pom = new PositionManager(positions)
       val parser = new SyntaxAnalyzer[PreambleContext, PPreamble](preprocessedSource, ListBuffer.empty[ParserError], pom, specOnly = true)
       parser.parse(parser.preamble)
@@ -219,7 +217,7 @@ object Parser extends LazyLogging {
         parseSource(preprocessedSource)
       }
 
-      val res = preambleCache.computeIfAbsent(getPreambleCacheKey(preprocessedSource), _ => parseAndStore())
+      val res = preambleCache.computeIfAbsent(getPreambleCacheKey(preprocessedSource), config.frontendCacheSize)(parseAndStore())
       if (!cacheHit) {
         logger.trace(s"No cache hit for ${res.map(_.packageClause.id.name)}'s preamble")
       }
@@ -233,29 +231,32 @@ object Parser extends LazyLogging {
     parseSources(preprocessedInputs, pkgInfo, specOnly = specOnly)(config)
   }
 
-  private def postprocess(processResult: Either[Vector[ParserError], (Vector[Source], PPackage)], specOnly: Boolean)(config: Config): Either[Vector[ParserError], (Vector[Source], PPackage)] = {
-    for {
-      successfulProcessResult <- processResult
-      (preprocessedInputs, parseAst) = successfulProcessResult
-      postprocessors = Seq(
-        new ImportPostprocessor(parseAst.positions.positions),
-        new TerminationMeasurePostprocessor(parseAst.positions.positions, specOnly = specOnly),
-      )
-      postprocessedAst <- postprocessors.foldLeft[Either[Vector[ParserError], PPackage]](Right(parseAst)) {
-        case (Right(ast), postprocessor) => postprocessor.postprocess(ast)(config)
-        case (e, _) => e
-      }
-    } yield (preprocessedInputs, postprocessedAst)
+  /**
+    * Postprocesses a freshly parsed package. The nodes created by the postprocessors get their positions in the
+    * position table of `parseAst`. Hence, a parse AST must be postprocessed at most once as otherwise its table would
+    * grow with every postprocessing.
+    */
+  private def postprocess(parseAst: PPackage, specOnly: Boolean, resolveQualifier: PImplicitQualifiedImport => Either[String, String])(config: Config): Either[Vector[ParserError], PPackage] = {
+    val postprocessors = Seq(
+      new ImportPostprocessor(parseAst.positions.positions, resolveQualifier),
+      new TerminationMeasurePostprocessor(parseAst.positions.positions, specOnly = specOnly),
+    )
+    postprocessors.foldLeft[Either[Vector[ParserError], PPackage]](Right(parseAst)) {
+      case (Right(ast), postprocessor) => postprocessor.postprocess(ast)(config)
+      case (e, _) => e
+    }
   }
 
   type SourceCacheKey = String
   // cache maps a key (obtained by hashing file path and file content) to the parse result
-  private val preambleCache: ConcurrentMap[SourceCacheKey, Either[Vector[ParserError], PPreamble]] = new ConcurrentHashMap()
+  private val preambleCache: LruCache[SourceCacheKey, Either[Vector[ParserError], PPreamble]] = new LruCache()
   type PackageCacheKey = String
   // we cache entire packages and not individual files (i.e. PProgram) as this saves us from copying over positional information
   // from one to the other position manager. Also, this transformation of copying positional information results in
   // differen PPackage instances that is problematic for caching type-check results.
-  private val packageCache: ConcurrentMap[PackageCacheKey, Either[Vector[ParserError], PPackage]] = new ConcurrentHashMap()
+  // Cached packages are already postprocessed such that the positions of the nodes created by the postprocessors are
+  // only added once to the package's position table.
+  private val packageCache: LruCache[PackageCacheKey, Either[Vector[ParserError], PPackage]] = new LruCache()
 
   /** computes the key for caching the preamble of a particular source. This takes the name and the source's content into account */
   private def getPreambleCacheKey(source: Source): SourceCacheKey = {
@@ -265,9 +266,13 @@ object Parser extends LazyLogging {
     bytes.map { "%02x".format(_) }.mkString
   }
 
-  /** computes the key for caching a package. This takes the name and the content of each source, the package info and the `specOnly` flag into account */
-  private def getPackageCacheKey(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean): PackageCacheKey = {
-    val key = sources.map(source => source.name ++ source.content).mkString("") ++ pkgInfo.hashCode.toString ++ (if (specOnly) "1" else "0")
+  /**
+    * computes the key for caching a package. This takes the name and the content of each source, the package info, the
+    * `specOnly` flag and the qualifiers resolved for implicitly qualified imports into account
+    */
+  private def getPackageCacheKey(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean, qualifiers: Vector[(String, Either[String, String])]): PackageCacheKey = {
+    val key = sources.map(source => source.name ++ source.content).mkString("") ++ pkgInfo.hashCode.toString ++ (if (specOnly) "1" else "0") ++
+      qualifiers.map { case (importPath, qualifier) => s"$importPath:$qualifier" }.mkString(";")
     val bytes = MessageDigest.getInstance("MD5").digest(key.getBytes)
     // convert `bytes` to a hex string representation such that we get equality on the key while performing cache lookups
     bytes.map { "%02x".format(_) }.mkString
@@ -278,26 +283,41 @@ object Parser extends LazyLogging {
     packageCache.clear()
   }
 
+  /** removes the cached parse ASTs of `pkgs` such that they can be garbage collected once they are no longer in use */
+  def releaseCached(pkgs: Iterable[PPackage]): Unit =
+    packageCache.removeValues(_.exists(pkg => pkgs.exists(_ eq pkg)))
+
   private def parseSources(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean)(config: Config): Either[Vector[ParserError], PPackage] = {
     def parseSourcesCached(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean)(config: Config): Either[Vector[ParserError], PPackage] = {
+      // the result of postprocessing depends on the qualifiers of implicitly qualified imports, which are resolved
+      // via the file system. Thus, they are resolved before the lookup and become part of the cache key
+      val qualifiers = sources
+        .flatMap(source => processPreamble(source)(config).toSeq)
+        .flatMap(_.imports.collect { case n: PImplicitQualifiedImport => n.importPath -> PackageResolver.getQualifier(n)(config) })
+      val resolvedQualifiers = qualifiers.toMap
       var cacheHit: Boolean = true
-      val res = packageCache.computeIfAbsent(getPackageCacheKey(sources, pkgInfo, specOnly), _ => {
+      val res = packageCache.computeIfAbsent(getPackageCacheKey(sources, pkgInfo, specOnly, qualifiers), config.frontendCacheSize) {
         cacheHit = false
-        parseSourcesUncached(sources, pkgInfo, specOnly)(config)
-      })
+        parseSourcesUncached(sources, pkgInfo, specOnly)(config).flatMap(parseAst =>
+          postprocess(parseAst, specOnly, n => resolvedQualifiers.getOrElse(n.importPath, PackageResolver.getQualifier(n)(config)))(config))
+      }
       if (!cacheHit) {
         logger.trace(s"No cache hit for package ${pkgInfo.id}'s parse AST)")
       }
       res
     }
 
-    val parseFn = if (config.cacheParserAndTypeChecker) { parseSourcesCached _ } else { parseSourcesUncached _ }
+    def parseSourcesAndPostprocess(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean)(config: Config): Either[Vector[ParserError], PPackage] =
+      parseSourcesUncached(sources, pkgInfo, specOnly)(config).flatMap(parseAst =>
+        postprocess(parseAst, specOnly, n => PackageResolver.getQualifier(n)(config))(config))
+
+    val parseFn = if (config.cacheParserAndTypeChecker) { parseSourcesCached _ } else { parseSourcesAndPostprocess _ }
     parseFn(sources, pkgInfo, specOnly)(config)
   }
 
   /** parses a package not taking the package cache but only the program cache into account */
   private def parseSourcesUncached(sources: Vector[Source], pkgInfo: PackageInfo, specOnly: Boolean)(config: Config): Either[Vector[ParserError], PPackage] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     lazy val rewriter = new PRewriter(pom.positions)
 
@@ -367,42 +387,42 @@ object Parser extends LazyLogging {
   }
 
   def parseProgram(source: Source, specOnly: Boolean = false): Either[Vector[ParserError], PProgram] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[SourceFileContext, PProgram](source, ListBuffer.empty[ParserError], pom, specOnly)
     parser.parse(parser.sourceFile())
   }
 
   def parseFunction(source: Source, specOnly: Boolean = false): Either[Vector[ParserError], PMember] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[SpecMemberContext, PMember](source, ListBuffer.empty[ParserError], pom, specOnly)
     parser.parse(parser.specMember())
   }
 
   def parseStmt(source: Source): Either[Vector[ParserError], PStatement] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[StmtOnlyContext, PStatement](source, ListBuffer.empty[ParserError], pom, false)
     parser.parse(parser.stmtOnly())
   }
 
   def parseExpr(source: Source): Either[Vector[ParserError], PExpression] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[ExprOnlyContext, PExpression](source, ListBuffer.empty[ParserError], pom, false)
     parser.parse(parser.exprOnly())
   }
 
   def parseImportDecl(source: Source): Either[Vector[ParserError], Vector[PImport]] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[ImportDeclContext, Vector[PImport]](source, ListBuffer.empty[ParserError], pom, false)
     parser.parse(parser.importDecl())
   }
 
   def parseType(source : Source) : Either[Vector[ParserError], PType] = {
-    val positions = new Positions
+    val positions = new CompactPositions
     val pom = new PositionManager(positions)
     val parser = new SyntaxAnalyzer[TypeOnlyContext, PType](source, ListBuffer.empty[ParserError], pom, false)
     parser.parse(parser.typeOnly())
@@ -420,7 +440,7 @@ object Parser extends LazyLogging {
     def postprocess(pkg: PPackage)(config: Config): Either[Vector[ParserError], PPackage]
   }
 
-  private class ImportPostprocessor(override val positions: Positions) extends Postprocessor {
+  private class ImportPostprocessor(override val positions: Positions, resolveQualifier: PImplicitQualifiedImport => Either[String, String]) extends Postprocessor {
     /**
       * Replaces all PQualifiedWoQualifierImport by PQualifiedImport nodes
       */
@@ -438,7 +458,7 @@ object Parser extends LazyLogging {
 
       def replace(n: PImplicitQualifiedImport): Option[PExplicitQualifiedImport] = {
         val qualifier = for {
-          qualifierName <- PackageResolver.getQualifier(n)(config)
+          qualifierName <- resolveQualifier(n)
           // create a new PIdnDef node and set its positions according to the old node (PositionedRewriter ensures that
           // the same happens for the newly created PExplicitQualifiedImport)
           idnDef = PIdnDef(qualifierName).at(n)
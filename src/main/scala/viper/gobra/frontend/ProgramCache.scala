@@ -0,0 +1,102 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.frontend
+
+import viper.gobra.GoVerifier
+import viper.gobra.ast.frontend.PNode
+import viper.gobra.ast.internal.Program
+import viper.gobra.frontend.PackageResolver.AbstractPackage
+import viper.gobra.frontend.Parser.ParseResult
+import viper.gobra.util.DiskCache
+
+import java.io.{InvalidObjectException, NotSerializableException}
+import java.util
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Stores desugared and transformed programs in the subdirectory `programs` of the Gobra directory such that
+  * subsequent runs can skip desugaring and the internal transformations if neither the sources of a package (incl.
+  * the sources of its imports) nor the relevant options have changed.
+  *
+  * The source infos of a program reference the frontend nodes from which the program has been desugared. These nodes
+  * are not stored. Instead, a node is identified by its package and its index in a preorder traversal of the
+  * package's parse AST. When loading a program, the identified nodes of the current parse ASTs are used, which are
+  * structurally equal to the stored ones because the sources are part of the key. Thus, the loaded program refers
+  * to the same nodes as a freshly desugared program, which the type information and the reporters depend on.
+  */
+object ProgramCache {
+
+  /** has to be incremented whenever the representation of the internal program changes incompatibly */
+  val FormatVersion: Int = 2
+
+  /** the desugared program before and after applying the internal transformations */
+  case class Entry(desugared: Program, transformed: Program)
+
+  /** identifies the node with index `index` in the preorder traversal of package `pkg` */
+  private case class NodeSurrogate(pkg: String, index: Int)
+
+  private val cache = new DiskCache("programs", FormatVersion)
+
+  /**
+    * Returns a hash identifying the program that results from desugaring the parsed packages `parseResults`, which
+    * includes the imports of the verified package, under `config`.
+    */
+  def key(config: Config, parseResults: Map[AbstractPackage, ParseResult]): String = {
+    val sources = parseResults.toVector.sortBy(_._1.toString).flatMap { case (pkg, res) =>
+      pkg.toString +: (res match {
+        case Right((sources, _)) => sources.sortBy(_.name).flatMap(src => Vector(src.name, src.content))
+        case Left(errs) => errs.map(_.toString)
+      })
+    }
+    DiskCache.hash(
+      s"$FormatVersion ${GoVerifier.version}" +:
+      // options that affect desugaring or the internal transformations
+      s"${config.checkOverflows} ${config.int32bit} ${config.enableLazyImports} ${config.mceMode}" +:
+      sources
+    )
+  }
+
+  /** returns the programs stored for `key`, if any, whose frontend nodes are the nodes of `parseResults` */
+  def load(config: Config, key: String, parseResults: Map[AbstractPackage, ParseResult]): Option[Entry] = {
+    lazy val nodes = parseResults.map { case (pkg, res) => pkg.toString -> preorder(res) }
+    cache.load[Entry](config, key, {
+      case NodeSurrogate(pkg, index) =>
+        nodes.get(pkg).filter(_.isDefinedAt(index)).map(_(index))
+          .getOrElse(throw new InvalidObjectException(s"node $index of package $pkg does not exist"))
+    })
+  }
+
+  /** stores `entry` for `key`, whose frontend nodes have to be nodes of `parseResults` */
+  def store(config: Config, key: String, parseResults: Map[AbstractPackage, ParseResult], entry: Entry): Unit = {
+    lazy val indices = {
+      val res = new util.IdentityHashMap[PNode, NodeSurrogate]()
+      parseResults.foreach { case (pkg, parseResult) =>
+        preorder(parseResult).zipWithIndex.foreach { case (n, idx) => res.putIfAbsent(n, NodeSurrogate(pkg.toString, idx)) }
+      }
+      res
+    }
+    cache.store(config, key, entry, {
+      case n: PNode =>
+        Option(indices.get(n)).getOrElse(throw new NotSerializableException(s"node ${n.formattedShort} is not part of a parse AST"))
+    })
+  }
+
+  /** returns the nodes of the parse AST in `res` in preorder */
+  private def preorder(res: ParseResult): Vector[PNode] = {
+    val nodes = ArrayBuffer.empty[PNode]
+    def go(x: Any): Unit = x match {
+      case n: PNode =>
+        nodes += n
+        n.productIterator.foreach(go)
+      case p: Product => p.productIterator.foreach(go)
+      case it: Iterable[_] => it.foreach(go)
+      case _ =>
+    }
+    res.foreach { case (_, pkg) => go(pkg) }
+    nodes.toVector
+  }
+}
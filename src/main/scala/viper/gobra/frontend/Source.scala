@@ -27,7 +27,7 @@ import scala.io.BufferedSource
  * @param name the name of the package, does not have to be unique
  * @param isBuiltIn a flag indicating, if the package comes from within Gobra
  */
-class PackageInfo(val id: String, val name: String, val isBuiltIn: Boolean) {
+class PackageInfo(val id: String, val name: String, val isBuiltIn: Boolean) extends Serializable {
 
   /**
    * Unique id of the package to use in Viper member names.
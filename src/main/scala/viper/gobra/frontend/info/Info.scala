@@ -18,14 +18,16 @@ import viper.gobra.frontend.PackageResolver.{AbstractImport, AbstractPackage, Bu
 import viper.gobra.frontend.Parser.{ParseResult, ParseSuccessResult}
 import viper.gobra.util.TaskManagerMode.{Lazy, Parallel, Sequential}
 import viper.gobra.frontend.info.implementation.TypeInfoImpl
+import viper.gobra.frontend.info.implementation.property.TypeInterning
 import viper.gobra.frontend.info.implementation.typing.ghost.separation.{GhostLessPrinter, GoifyingPrinter}
-import viper.gobra.reporting.{CyclicImportError, ParserError, TypeCheckDebugMessage, TypeCheckFailureMessage, TypeCheckSuccessMessage, TypeError, VerifierError}
-import viper.gobra.util.{GobraExecutionContext, Job, TaskManager, Violation}
+import viper.gobra.reporting.{CyclicImportError, LazyPayload, ParserError, TypeCheckDebugMessage, TypeCheckFailureMessage, TypeCheckSuccessMessage, TypeError, VerifierError}
+import viper.gobra.util.{GobraExecutionContext, Job, LruCache, OutputUtil, TaskManager, Violation}
 
 import java.security.MessageDigest
+import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.atomic.AtomicLong
-import java.util.concurrent.{ConcurrentHashMap, ConcurrentMap}
 import scala.concurrent.Future
+import scala.jdk.CollectionConverters._
 
 // `LazyLogging` provides us with access to `logger` to emit log messages
 object Info extends LazyLogging {
@@ -122,6 +124,11 @@ object Info extends LazyLogging {
     private val typeCheckManager = new TaskManager[AbstractPackage, (Vector[Source], PPackage, Vector[AbstractImport]), () => TypeCheckResult](config.parseAndTypeCheckMode)
 
     var tyeCheckDurationMs = new AtomicLong(0L)
+    private val typeInfos: ConcurrentLinkedQueue[TypeInfoImpl] = new ConcurrentLinkedQueue()
+
+    /** interning statistics summed over all packages that have been type-checked successfully so far */
+    def internStats: TypeInterning.Stats =
+      typeInfos.asScala.foldLeft(TypeInterning.Stats.empty)(_ + _.internStats)
 
     /**
       * This job creates type-check jobs for all packages imported by the specified package as part of the sequential
@@ -177,6 +184,7 @@ object Info extends LazyLogging {
         } else {
           tyeCheckDurationMs.addAndGet(System.currentTimeMillis() - startMs)
         }
+        res.foreach { case info: TypeInfoImpl => typeInfos.add(info); case _ => }
         res
       }
     }
@@ -205,7 +213,7 @@ object Info extends LazyLogging {
       typeInfo <- EitherT.fromEither(context.typeCheck(abstractPackage))
       _ = logger.debug {
         val durationS = f"${(System.currentTimeMillis() - typeCheckingStartMs) / 1000f}%.1f"
-        s"type-checking done, took ${durationS}s (in mode ${config.parseAndTypeCheckMode})"
+        s"type-checking done, took ${durationS}s (in mode ${config.parseAndTypeCheckMode}), heap in use: ${OutputUtil.usedHeapMB} MB"
       }
       _ = logger.debug {
         val typeCheckingEndMs = System.currentTimeMillis()
@@ -214,11 +222,12 @@ object Info extends LazyLogging {
         val overheadS = f"${overheadMs / 1000f}%.1f"
         s"type-checking individual packages took ${sumDurationS}s. Overhead for tasks is thus ${overheadS}s (${(100f * overheadMs / (typeCheckingEndMs - typeCheckingStartMs)).toInt}%)"
       }
+      _ = logger.debug(s"type interning: ${context.internStats}")
     } yield typeInfo
   }
 
   type TypeInfoCacheKey = String
-  private val typeInfoCache: ConcurrentMap[TypeInfoCacheKey, TypeInfoImpl] = new ConcurrentHashMap()
+  private val typeInfoCache: LruCache[TypeInfoCacheKey, TypeInfoImpl] = new LruCache()
 
   private def getCacheKey(pkg: PPackage, dependentTypeInfo: Map[AbstractImport, () => Either[Vector[VerifierError], ExternalTypeInfo]], isMainContext: Boolean, config: Config): TypeInfoCacheKey = {
     // the cache key only depends on config's `typeBounds`, `int32bit`, and `enableLazyImport`
@@ -248,6 +257,10 @@ object Info extends LazyLogging {
     typeInfoCache.clear()
   }
 
+  /** removes the cached type-checkers of `pkgs` such that they can be garbage collected once they are no longer in use */
+  def releaseCached(pkgs: Iterable[PPackage]): Unit =
+    typeInfoCache.removeValues(typeInfo => pkgs.exists(_ eq typeInfo.tree.originalRoot))
+
   def checkSources(sources: Vector[Source], pkg: PPackage, dependentTypeInfo: Map[AbstractImport, () => Either[Vector[VerifierError], ExternalTypeInfo]], isMainContext: Boolean = false)(config: Config): TypeCheckResult = {
     var cacheHit: Boolean = true
     def getTypeInfo(pkg: PPackage, dependentTypeInfo: Map[AbstractImport, () => Either[Vector[VerifierError], ExternalTypeInfo]], isMainContext: Boolean, config: Config): TypeInfoImpl = {
@@ -257,7 +270,7 @@ object Info extends LazyLogging {
     }
 
     def getTypeInfoCached(pkg: PPackage, dependentTypeInfo: Map[AbstractImport, () => Either[Vector[VerifierError], ExternalTypeInfo]], isMainContext: Boolean, config: Config): TypeInfoImpl = {
-      typeInfoCache.computeIfAbsent(getCacheKey(pkg, dependentTypeInfo, isMainContext, config), _ => getTypeInfo(pkg, dependentTypeInfo, isMainContext, config))
+      typeInfoCache.computeIfAbsent(getCacheKey(pkg, dependentTypeInfo, isMainContext, config), config.frontendCacheSize)(getTypeInfo(pkg, dependentTypeInfo, isMainContext, config))
     }
 
     val checkFn = if (config.cacheParserAndTypeChecker) { getTypeInfoCached _ } else { getTypeInfo _ }
@@ -275,9 +288,9 @@ object Info extends LazyLogging {
 
     val sourceNames = sources.map(_.name)
     // use `sources` instead of `context.inputs` for reporting such that the message is correctly attributed in case of imports
-    config.reporter report TypeCheckDebugMessage(sourceNames, () => pkg, () => getDebugInfo(pkg, info))
+    config.reporter report TypeCheckDebugMessage(sourceNames, () => pkg, LazyPayload(getDebugInfo(pkg, info)))
     if (errors.isEmpty) {
-      config.reporter report TypeCheckSuccessMessage(sourceNames, config.taskName, () => info, () => pkg, () => getErasedGhostCode(pkg, info), () => getGoifiedGhostCode(pkg, info))
+      config.reporter report TypeCheckSuccessMessage(sourceNames, config.taskName, () => info, () => pkg, LazyPayload(getErasedGhostCode(pkg, info)), LazyPayload(getGoifiedGhostCode(pkg, info)))
       Right(info)
     } else {
       // remove duplicates as errors related to imported packages might occur multiple times
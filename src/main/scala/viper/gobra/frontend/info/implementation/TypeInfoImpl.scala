@@ -11,7 +11,7 @@ import org.bitbucket.inkytonik.kiama.attribution.Attribution
 import viper.gobra.ast.frontend._
 import viper.gobra.frontend.PackageResolver.AbstractImport
 import viper.gobra.frontend.{Config, PackageInfo}
-import viper.gobra.frontend.info.base.SymbolTable.{Regular, TypeMember, UnknownEntity, lookup}
+import viper.gobra.frontend.info.base.SymbolTable.{Regular, TypeMember}
 import viper.gobra.frontend.info.base.{SymbolTable, Type}
 import viper.gobra.frontend.info.implementation.property._
 import viper.gobra.frontend.info.implementation.resolution.{AmbiguityResolution, Enclosing, LabelResolution, MemberPath, MemberResolution, NameResolution}
@@ -59,6 +59,7 @@ class TypeInfoImpl(final val tree: Info.GoTree, final val dependentTypeInfo: Map
   with ConstantEvaluation
   with Implements
   with UnderlyingType
+  with TypeInterning
   with TypeMerging
 
   with Errors
@@ -108,15 +109,18 @@ class TypeInfoImpl(final val tree: Info.GoTree, final val dependentTypeInfo: Map
     case _ => violation("found non-regular entity")
   }
 
-  private var externallyAccessedMembers: Vector[PNode] = Vector()
+  // members of this package are accessed by the type-checkers of importing packages, which might run concurrently.
+  // Members are nodes of this package's tree, thus we compare them by identity
+  private val externallyAccessedMembers: java.util.Set[PNode] =
+    java.util.Collections.synchronizedSet(java.util.Collections.newSetFromMap(new java.util.IdentityHashMap[PNode, java.lang.Boolean]()))
   private def registerExternallyAccessedEntity(r: SymbolTable.Regular): SymbolTable.Regular = {
-    if (!externallyAccessedMembers.contains(r.rep)) externallyAccessedMembers = externallyAccessedMembers :+ r.rep
+    externallyAccessedMembers.add(r.rep)
     r
   }
 
   override def externalRegular(n: PIdnNode): Option[SymbolTable.Regular] = {
     // TODO restrict lookup to members starting with a capital letter
-    lookup(topLevelEnvironment, n.name, UnknownEntity()) match {
+    topLevelLookup(n.name) match {
       case r: Regular => Some(registerExternallyAccessedEntity(r))
       case _ => None
     }
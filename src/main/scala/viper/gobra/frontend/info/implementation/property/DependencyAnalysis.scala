@@ -53,29 +53,39 @@ trait DependencyAnalysis extends BaseProperty { this: TypeInfoImpl =>
     * @return
     */
   def globalsExprDependsOn(exp: PExpression): Either[String, Vector[st.GlobalVariable]] = {
-    val enclosingPkg = tryEnclosingPackage(exp).get
-    val stack = mutable.Stack[PNode](exp)
-    var visitedEntities = Seq[st.Regular]()
-    // Stores all dependencies of a node (including itself).
-    var dependencies = Seq[st.GlobalVariable]()
-    var foundError: Option[String] = None
-    val currentPackageContext = this
-
-    // According to the Go language spec:
-    //  Dependency analysis does not rely on the actual values of the variables, only on lexical
-    //  references to them in the source, analyzed transitively.
-    //  For instance, if a variable x's initialization expression refers to a function whose body
-    //  refers to variable y then x depends on y. Specifically:
-    //    - A reference to a variable or function is an identifier denoting that variable or function.
-    //    - A reference to a method m is a method value or method expression of the form t.m, where the (static)
-    //      type of t is not an interface type, and the method m is in the method set of t. It is immaterial
-    //      whether the resulting function value t.m is invoked.
-    //    - A variable, function, or method x depends on a variable y if x's initialization expression or
-    //      body (for functions and methods) contains a reference to y or to a function or
-    //      method that depends on y.
-    while (stack.nonEmpty && foundError.isEmpty) {
-      val elem = stack.pop()
-      reflexiveAllChildren(elem).foreach{
+    directReferences(exp).flatMap { refs =>
+      refs.foldLeft[Either[String, Set[st.Regular]]](Right(Set.empty)) {
+        case (Right(acc), (entity, root)) => referenceGraph.transitiveReferences(entity, root).map(acc ++ _ + entity)
+        case (err, _) => err
+      }
+    }.map(_.toVector.collect { case g: st.GlobalVariable => g })
+  }
+
+  /**
+    * Entities of the current package that are lexically referenced in the subtree of a node, together with the
+    * node that has to be analysed to obtain their references, i.e., the declaration of global variables and functions
+    * and the representative of methods. Returns an error if a dynamically-bound method is called.
+    */
+  private lazy val directReferences: PNode => Either[String, Vector[(st.Regular, PNode)]] =
+    attr[PNode, Either[String, Vector[(st.Regular, PNode)]]] { root =>
+      val enclosingPkg = tryEnclosingPackage(root)
+      val references = mutable.LinkedHashMap[st.Regular, PNode]()
+      var foundError: Option[String] = None
+      val currentPackageContext = this
+
+      // According to the Go language spec:
+      //  Dependency analysis does not rely on the actual values of the variables, only on lexical
+      //  references to them in the source, analyzed transitively.
+      //  For instance, if a variable x's initialization expression refers to a function whose body
+      //  refers to variable y then x depends on y. Specifically:
+      //    - A reference to a variable or function is an identifier denoting that variable or function.
+      //    - A reference to a method m is a method value or method expression of the form t.m, where the (static)
+      //      type of t is not an interface type, and the method m is in the method set of t. It is immaterial
+      //      whether the resulting function value t.m is invoked.
+      //    - A variable, function, or method x depends on a variable y if x's initialization expression or
+      //      body (for functions and methods) contains a reference to y or to a function or
+      //      method that depends on y.
+      reflexiveAllChildren(root).foreach {
         case n: PNamedOperand =>
           // If it is from another package (checked with _.symb.context == currentPackageContext), do not analyse.
           // If it is a function call, it is not a ghost call,
@@ -83,16 +93,9 @@ trait DependencyAnalysis extends BaseProperty { this: TypeInfoImpl =>
           // If it is a global variable, collect its dependencies if it has not been traversed yet.
           resolve(n) match {
             case Some(g: ap.GlobalVariable) if !isEnclosingGhost(n) && g.symb.context == currentPackageContext =>
-              if (!visitedEntities.contains(g.symb)) {
-                dependencies :+= g.symb
-                visitedEntities :+= g.symb
-                stack.push(g.symb.decl)
-              }
+              references.getOrElseUpdate(g.symb, g.symb.decl)
             case Some(f: ap.Function) if !isEnclosingGhost(n) && f.symb.context == currentPackageContext =>
-              if (!visitedEntities.contains(f.symb)) {
-                visitedEntities :+= f.symb
-                stack.push(f.symb.decl)
-              }
+              references.getOrElseUpdate(f.symb, f.symb.decl)
             case _ =>
           }
         case n: PDot =>
@@ -101,25 +104,92 @@ trait DependencyAnalysis extends BaseProperty { this: TypeInfoImpl =>
           // and it is not dynamically-bound, collect the method info if it has not been collected.
           resolve(n) match {
             case Some(f: ap.ReceivedMethod) if !isEnclosingGhost(n) && underlyingType(typ(f.recv)).isInstanceOf[Type.InterfaceT] && f.symb.context == currentPackageContext =>
-              foundError = Some(s"Calls to dynamically-bound non-ghost methods are not allowed in initialization code, but found $n.")
-            case Some(f: ap.ReceivedMethod) if !isEnclosingGhost(n) && tryEnclosingPackage(n).contains(enclosingPkg) && f.symb.context == currentPackageContext =>
-              if (!visitedEntities.contains(f.symb)) {
-                visitedEntities :+= f.symb
-                stack.push(f.symb.rep)
-              }
+              foundError = foundError orElse Some(s"Calls to dynamically-bound non-ghost methods are not allowed in initialization code, but found $n.")
+            case Some(f: ap.ReceivedMethod) if !isEnclosingGhost(n) && tryEnclosingPackage(n) == enclosingPkg && f.symb.context == currentPackageContext =>
+              references.getOrElseUpdate(f.symb, f.symb.rep)
             case Some(f: ap.MethodExpr) if !isEnclosingGhost(n) && underlyingType(symbType(f.typ)).isInstanceOf[Type.InterfaceT] && f.symb.context == currentPackageContext =>
-              foundError = Some(s"Calls to dynamically-bound non-ghost methods are not allowed in initialization code, but found $n.")
-            case Some(f: ap.MethodExpr) if !isEnclosingGhost(n) && tryEnclosingPackage(n).contains(enclosingPkg) && f.symb.context == currentPackageContext =>
-              if (!visitedEntities.contains(f.symb)) {
-                visitedEntities :+= f.symb
-                stack.push(f.symb.rep)
-              }
+              foundError = foundError orElse Some(s"Calls to dynamically-bound non-ghost methods are not allowed in initialization code, but found $n.")
+            case Some(f: ap.MethodExpr) if !isEnclosingGhost(n) && tryEnclosingPackage(n) == enclosingPkg && f.symb.context == currentPackageContext =>
+              references.getOrElseUpdate(f.symb, f.symb.rep)
             case _ =>
           }
         case _ =>
       }
+      foundError.toLeft(references.toVector)
+    }
+
+  private lazy val referenceGraph: ReferenceGraph = new ReferenceGraph
+
+  /**
+    * Reference graph of the entities declared in the current package, where an entity has an edge to every entity
+    * that it references directly (see [[directReferences]]). The graph is explored lazily and the strongly connected
+    * components are computed with Tarjan's algorithm. Since all entities in a component reach the same entities,
+    * the transitive references are computed once per component and are memoized.
+    */
+  private class ReferenceGraph {
+    private var nextIndex = 0
+    private val index = mutable.Map[st.Regular, Int]()
+    private val lowlink = mutable.Map[st.Regular, Int]()
+    private val stack = mutable.Stack[st.Regular]()
+    private val onStack = mutable.Set[st.Regular]()
+    private val roots = mutable.Map[st.Regular, PNode]()
+    private val transitive = mutable.Map[st.Regular, Either[String, Set[st.Regular]]]()
+
+    /**
+      * All entities reachable from `entity` via at least one reference, or an error if one is reachable.
+      * `root` is the node whose references are the direct references of `entity`.
+      */
+    def transitiveReferences(entity: st.Regular, root: PNode): Either[String, Set[st.Regular]] = {
+      if (!transitive.contains(entity)) {
+        roots.getOrElseUpdate(entity, root)
+        strongConnect(entity)
+      }
+      transitive(entity)
+    }
+
+    private def successors(entity: st.Regular): Either[String, Vector[st.Regular]] =
+      directReferences(roots(entity)).map(_.map { case (succ, root) => roots.getOrElseUpdate(succ, root); succ })
+
+    private def strongConnect(v: st.Regular): Unit = {
+      index(v) = nextIndex
+      lowlink(v) = nextIndex
+      nextIndex += 1
+      stack.push(v)
+      onStack += v
+
+      val succs = successors(v).getOrElse(Vector.empty)
+      succs.foreach { w =>
+        if (!index.contains(w)) {
+          strongConnect(w)
+          lowlink(v) = math.min(lowlink(v), lowlink(w))
+        } else if (onStack.contains(w)) {
+          lowlink(v) = math.min(lowlink(v), index(w))
+        }
+      }
+
+      if (lowlink(v) == index(v)) {
+        // `v` is the root of a strongly connected component. All components reachable from it are completed already
+        var component = Set.empty[st.Regular]
+        var w: st.Regular = null
+        while (w != v) {
+          w = stack.pop()
+          onStack -= w
+          component += w
+        }
+        val componentSuccs = component.toVector.map(c => (c, successors(c)))
+        val isCyclic = component.size > 1 || succs.contains(v)
+        val result = componentSuccs.collectFirst { case (_, Left(err)) => err } match {
+          case Some(err) => Left(err)
+          case None =>
+            val outside = componentSuccs.flatMap(_._2.getOrElse(Vector.empty)).distinct.filterNot(component.contains)
+            outside.foldLeft[Either[String, Set[st.Regular]]](Right(if (isCyclic) component else Set.empty)) {
+              case (Right(acc), succ) => transitive(succ).map(acc ++ _ + succ)
+              case (err, _) => err
+            }
+        }
+        component.foreach(c => transitive(c) = result)
+      }
     }
-    foundError.toLeft(dependencies.toVector)
   }
 
   private def reflexiveAllChildren(n: PNode): Vector[PNode] = n +: allChildren(n)
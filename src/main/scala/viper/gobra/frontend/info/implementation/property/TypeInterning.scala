@@ -0,0 +1,99 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.frontend.info.implementation.property
+
+import viper.gobra.ast.frontend.PNode
+import viper.gobra.frontend.info.ExternalTypeInfo
+import viper.gobra.frontend.info.base.Type.Type
+import viper.gobra.frontend.info.implementation.TypeInfoImpl
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import scala.util.hashing.MurmurHash3
+
+trait TypeInterning { this: TypeInfoImpl =>
+
+  private val internedTypes: TypeInterning.Table = new TypeInterning.Table
+
+  /**
+    * Returns the canonical instance of `t` for this type-checker. Attributes keyed by types are memoized based on object
+    * identity. Interning types before using them as keys ensures that such attributes are not recomputed for equal
+    * types. Types are only identified if they refer to the same declarations and contexts (see [[TypeInterning.Key]]),
+    * thus the canonical instance always refers to the caller's own nodes.
+    */
+  def intern[T <: Type](t: T): T = internedTypes.intern(t)
+
+  /** hits and misses of [[intern]] so far */
+  def internStats: TypeInterning.Stats = internedTypes.stats
+}
+
+object TypeInterning {
+
+  /** Thread-safe interning table that counts how often an equal type has already been interned (hits) or not (misses). */
+  final class Table {
+    private val types: ConcurrentHashMap[Key, Type] = new ConcurrentHashMap()
+    private val hits: AtomicLong = new AtomicLong(0)
+    private val misses: AtomicLong = new AtomicLong(0)
+
+    def intern[T <: Type](t: T): T = {
+      var added = false
+      val canonical = types.computeIfAbsent(new Key(t), _ => { added = true; t })
+      if (added) misses.incrementAndGet() else hits.incrementAndGet()
+      canonical.asInstanceOf[T]
+    }
+
+    def stats: Stats = Stats(hits.get(), misses.get())
+  }
+
+  case class Stats(hits: Long, misses: Long) {
+    def +(other: Stats): Stats = Stats(hits + other.hits, misses + other.misses)
+
+    /** fraction of interned types for which an already existing instance was returned */
+    def hitRate: Double = if (hits + misses == 0) 0 else hits.toDouble / (hits + misses)
+
+    override def toString: String = f"$hits hits, $misses misses (hit rate ${100 * hitRate}%.1f%%)"
+  }
+
+  object Stats {
+    val empty: Stats = Stats(0, 0)
+  }
+
+  /**
+    * Wraps a type such that it is compared structurally, except for declarations and contexts, which are compared by
+    * identity. In contrast to the equality of types, hashing and comparing keys thus only depends on the size of the
+    * type and not on the size of the declarations it refers to.
+    */
+  final class Key(val typ: Type) {
+    override val hashCode: Int = hash(typ)
+
+    override def equals(obj: Any): Boolean = obj match {
+      case other: Key => (other eq this) || (other.hashCode == hashCode && same(typ, other.typ))
+      case _ => false
+    }
+  }
+
+  private def hash(x: Any): Int = x match {
+    case n: PNode => System.identityHashCode(n)
+    case c: ExternalTypeInfo => System.identityHashCode(c)
+    case m: collection.Map[_, _] => MurmurHash3.unorderedHash(m.iterator.map { case (k, v) => MurmurHash3.mix(k.##, hash(v)) })
+    case i: Iterable[_] => MurmurHash3.orderedHash(i.iterator.map(hash))
+    case p: Product => MurmurHash3.orderedHash(p.productIterator.map(hash), p.productPrefix.##)
+    case _ => x.##
+  }
+
+  private def same(l: Any, r: Any): Boolean = (l, r) match {
+    case (l: PNode, r: PNode) => l eq r
+    case (l: ExternalTypeInfo, r: ExternalTypeInfo) => l eq r
+    case (l: collection.Map[Any, _] @unchecked, r: collection.Map[Any, _] @unchecked) =>
+      l.size == r.size && l.forall { case (k, v) => r.get(k).exists(same(v, _)) }
+    case (l: Iterable[_], r: Iterable[_]) =>
+      l.size == r.size && l.iterator.zip(r.iterator).forall { case (a, b) => same(a, b) }
+    case (l: Product, r: Product) =>
+      l.getClass == r.getClass && l.productIterator.zip(r.productIterator).forall { case (a, b) => same(a, b) }
+    case _ => l == r
+  }
+}
@@ -22,7 +22,7 @@ trait UnderlyingType { this: TypeInfoImpl =>
   lazy val underlyingType: Type => Type =
     attr[Type, Type] {
       case Single(DeclaredT(t: PTypeDecl, context: ExternalTypeInfo)) => underlyingType(context.symbType(t.right))
-      case t => t
+      case t => intern(t)
     }
 
   lazy val underlyingTypeP: PType => Option[PType] = t => {
@@ -60,6 +60,9 @@ trait Enclosing { this: TypeInfoImpl =>
   lazy val tryEnclosingPackage: PNode => Option[PPackage] =
     down[Option[PPackage]](None) { case x: PPackage => Some(x) }
 
+  lazy val tryEnclosingProgram: PNode => Option[PProgram] =
+    down[Option[PProgram]](None) { case x: PProgram => Some(x) }
+
   lazy val tryEnclosingUnorderedScope: PNode => Option[PUnorderedScope] =
     down[Option[PUnorderedScope]](None) { case x: PUnorderedScope => Some(x) }
 
@@ -6,7 +6,6 @@
 
 package viper.gobra.frontend.info.implementation.resolution
 
-import org.bitbucket.inkytonik.kiama.relation.Relation
 import org.bitbucket.inkytonik.kiama.util.Entity
 import org.bitbucket.inkytonik.kiama.util.Messaging.{Messages, message, error}
 import viper.gobra.ast.frontend._
@@ -43,11 +42,17 @@ trait MemberResolution { this: TypeInfoImpl =>
   override def createMPredSpec(spec: PMPredicateSig): MPredicateSpec =
     defEntity(spec.id).asInstanceOf[MPredicateSpec]
 
+  /** Like `attr`, but types are interned before the lookup such that structurally equal types share one cache entry. */
+  private def typeAttr[T <: Type, R](f: T => R): T => R = {
+    val cached = attr[T, R](f)
+    t => cached(intern(t))
+  }
+
   // Struct Fields
 
   private val fieldSuffix: Type => AdvancedMemberSet[StructMember] = {
 
-    def go(pastDeref: Boolean): Type => AdvancedMemberSet[StructMember] = attr[Type, AdvancedMemberSet[StructMember]] {
+    def go(pastDeref: Boolean): Type => AdvancedMemberSet[StructMember] = typeAttr[Type, AdvancedMemberSet[StructMember]] {
 
       case DeclaredT(decl, context) => go(pastDeref)(context.symbType(decl.right)).surface
       case PointerT(t) if !pastDeref => go(pastDeref = true)(t).ref
@@ -63,8 +68,8 @@ trait MemberResolution { this: TypeInfoImpl =>
   }
 
   val structMemberSet: Type => AdvancedMemberSet[StructMember] =
-    attr[Type, AdvancedMemberSet[StructMember]] {
-      case Single(t) => fieldSuffix(t) union pastPromotions(fieldSuffix)(t)
+    typeAttr[Type, AdvancedMemberSet[StructMember]] {
+      case Single(t) => fieldSuffix(t) union fieldPromotions(t)
       case _ => AdvancedMemberSet.empty
     }
 
@@ -83,7 +88,7 @@ trait MemberResolution { this: TypeInfoImpl =>
     **/
   private val adtSuffix: Type => AdvancedMemberSet[AdtMember] = {
 
-    def go(pastDeref: Boolean): Type => AdvancedMemberSet[AdtMember] = attr[Type, AdvancedMemberSet[AdtMember]] {
+    def go(pastDeref: Boolean): Type => AdvancedMemberSet[AdtMember] = typeAttr[Type, AdvancedMemberSet[AdtMember]] {
 
       case DeclaredT(decl, context) => go(pastDeref)(context.symbType(decl.right)).surface
       case PointerT(t) if !pastDeref => go(pastDeref = true)(t).ref
@@ -104,8 +109,8 @@ trait MemberResolution { this: TypeInfoImpl =>
   }
 
   val adtMemberSet: Type => AdvancedMemberSet[AdtMember] =
-    attr[Type, AdvancedMemberSet[AdtMember]] {
-      case Single(t) => adtSuffix(t) union pastPromotions(adtSuffix)(t)
+    typeAttr[Type, AdvancedMemberSet[AdtMember]] {
+      case Single(t) => adtSuffix(t) union adtPromotions(t)
       case _ => AdvancedMemberSet.empty
     }
 
@@ -167,12 +172,12 @@ trait MemberResolution { this: TypeInfoImpl =>
   // Methods + Predicates
 
   lazy val receiverSet: Type => AdvancedMemberSet[TypeMember] =
-    attr[Type, AdvancedMemberSet[TypeMember]] (t => receiverMethodSet(t) union receiverPredicateSet(t))
+    typeAttr[Type, AdvancedMemberSet[TypeMember]] (t => receiverMethodSet(t) union receiverPredicateSet(t))
 
   // Interfaces
 
   lazy val interfaceMethodSet: InterfaceT => AdvancedMemberSet[TypeMember] =
-    attr[InterfaceT, AdvancedMemberSet[TypeMember]] {
+    typeAttr[InterfaceT, AdvancedMemberSet[TypeMember]] {
       case InterfaceT(PInterfaceType(es, methSpecs, predSpecs), ctxt) =>
         val topLevel = AdvancedMemberSet.init[TypeMember](methSpecs.map(m => ctxt.createMethodSpec(m))) union
           AdvancedMemberSet.init[TypeMember](predSpecs.map(m => ctxt.createMPredSpec(m)))
@@ -189,17 +194,21 @@ trait MemberResolution { this: TypeInfoImpl =>
 
   // Promotion
 
-  private def pastPromotions[M <: TypeMember](cont: Type => AdvancedMemberSet[M]): Type => AdvancedMemberSet[M] = {
+  /**
+    * Returns an attribute computing the members that are promoted to a type through its embedded fields, where `cont`
+    * computes the members of an embedded type. Every call creates new attributes and, thus, new memo tables.
+    */
+  def pastPromotions[M <: TypeMember](cont: Type => AdvancedMemberSet[M]): Type => AdvancedMemberSet[M] = {
 
-    def go(pastDeref: Boolean): Type => AdvancedMemberSet[M] = attr[Type, AdvancedMemberSet[M]] {
+    def go(pastDeref: Boolean): Type => AdvancedMemberSet[M] = typeAttr[Type, AdvancedMemberSet[M]] {
 
-      case DeclaredT(decl, context) => go(pastDeref)(context.symbType(decl.right)).surface
-      case PointerT(t) if !pastDeref => go(pastDeref = true)(t).ref
+      case DeclaredT(decl, context) => promotions(pastDeref)(context.symbType(decl.right)).surface
+      case PointerT(t) if !pastDeref => promotionsPastDeref(t).ref
 
       case s: StructT =>
         AdvancedMemberSet.union(s.decl.embedded map { e =>
           val et = s.context.typ(e.typ)
-          (cont(et) union go(pastDeref = false)(et)).promote(s.context.createEmbbed(e))
+          (cont(et) union promotionsBeforeDeref(et)).promote(s.context.createEmbbed(e))
         })
 
       case s: InterfaceT if !pastDeref => cont(s)
@@ -207,22 +216,35 @@ trait MemberResolution { this: TypeInfoImpl =>
       case _ => AdvancedMemberSet.empty
     }
 
-    go(pastDeref = false)
+    // the recursive calls use the same two attributes such that the promotions of a type embedded several times
+    // (e.g. in a diamond of embeddings) are computed once
+    lazy val promotionsBeforeDeref: Type => AdvancedMemberSet[M] = go(pastDeref = false)
+    lazy val promotionsPastDeref: Type => AdvancedMemberSet[M] = go(pastDeref = true)
+    def promotions(pastDeref: Boolean): Type => AdvancedMemberSet[M] =
+      if (pastDeref) promotionsPastDeref else promotionsBeforeDeref
+
+    promotionsBeforeDeref
   }
 
+  // `pastPromotions` creates new attributes. Thus, we create them once such that the promotions through embedded
+  // fields are memoized across all types for which a member set is computed
+  private lazy val fieldPromotions: Type => AdvancedMemberSet[StructMember] = pastPromotions(fieldSuffix)
+  private lazy val adtPromotions: Type => AdvancedMemberSet[AdtMember] = pastPromotions(adtSuffix)
+  private lazy val methodPromotions: Type => AdvancedMemberSet[TypeMember] = pastPromotions(pastPromotionsMethodSuffix)
+
   // Methodsets
 
   private val pastPromotionsMethodSuffix: Type => AdvancedMemberSet[TypeMember] =
-    attr[Type, AdvancedMemberSet[TypeMember]] {
+    typeAttr[Type, AdvancedMemberSet[TypeMember]] {
       case t: InterfaceT => interfaceMethodSet(t)
       case pt@PointerT(t) => receiverSet(pt) union receiverSet(t).ref
       case t => receiverSet(t) union receiverSet(PointerT(t)).deref
     }
 
   val nonAddressableMethodSet: Type => AdvancedMemberSet[TypeMember] =
-    attr[Type, AdvancedMemberSet[TypeMember]] {
+    typeAttr[Type, AdvancedMemberSet[TypeMember]] {
       case Single(t) =>
-        pastPromotions(pastPromotionsMethodSuffix)(t) union (t match {
+        methodPromotions(t) union (t match {
           case pt@ PointerT(st) => receiverSet(pt) union receiverSet(st).ref
           case _ => receiverSet(t)
         })
@@ -230,9 +252,9 @@ trait MemberResolution { this: TypeInfoImpl =>
     }
 
   val addressableMethodSet: Type => AdvancedMemberSet[TypeMember] =
-    attr[Type, AdvancedMemberSet[TypeMember]] {
+    typeAttr[Type, AdvancedMemberSet[TypeMember]] {
       case Single(t) =>
-        pastPromotions(pastPromotionsMethodSuffix)(t) union (t match {
+        methodPromotions(t) union (t match {
           case pt@ PointerT(st) => receiverSet(pt) union receiverSet(st).ref
           case _ => receiverSet(t) union receiverSet(PointerT(t)).deref
         })
@@ -360,27 +382,18 @@ trait MemberResolution { this: TypeInfoImpl =>
   def tryUnqualifiedBuiltInPackageLookup(id: PIdnUse): Option[Entity] =
     tryPackageLookup(BuiltInImport, id, id).map(_._1)
 
-  def tryUnqualifiedRegularPackageLookup(id: PIdnUse): Entity = {
-
-    def transitiveClosure[T](t: T, onestep: T => Vector[T]): Relation[T, T] = {
-      // fromOneStep creates a new relation in which all links from t to the root are contained in
-      val links = Relation.fromOneStep(t, onestep)
-      // create a new relation that consists of the image of links but only has t as its domain:
-      val relation = new Relation[T, T]
-      for (pair <- links.pairs) {
-        relation.put(t, pair._2)
-      }
-      relation
+  /** the unqualified imports of a program (not package) */
+  private lazy val unqualifiedImports: PProgram => Vector[PUnqualifiedImport] =
+    attr[PProgram, Vector[PUnqualifiedImport]] { program =>
+      program.imports.collect { case ui: PUnqualifiedImport => ui }
     }
 
-    val transitiveParent = transitiveClosure(id, tree.parent(_))
+  def tryUnqualifiedRegularPackageLookup(id: PIdnUse): Entity = {
     val entities = for {
       // get enclosing PProgram for this PIdnUse node
-      program <- transitiveParent(id).collectFirst { case p: PProgram => p }
-      // consider all unqualified imports for this program (not package)
-      unqualifiedImports = program.imports.collect { case ui: PUnqualifiedImport => ui }
+      program <- tryEnclosingProgram(id)
       // perform a package lookup in each unqualifiedly imported package
-      results = unqualifiedImports.flatMap(ui => tryPackageLookup(RegularImport(ui.importPath), id, ui))
+      results = unqualifiedImports(program).flatMap(ui => tryPackageLookup(RegularImport(ui.importPath), id, ui))
     } yield results
     entities match {
       case Some(Vector(elem)) => elem._1
@@ -293,6 +293,16 @@ trait NameResolution {
 
   lazy val topLevelEnvironment: Environment = scopedDefenv(tree.originalRoot)
 
+  /**
+    * The top-level environment flattened into a single map, which is used to resolve the (many) lookups of
+    * importing packages without walking the scope chain. Entries of inner scopes shadow entries of outer scopes.
+    */
+  private lazy val topLevelIndex: Map[String, Entity] =
+    topLevelEnvironment.foldRight(Map.empty[String, Entity]) { case (scope, acc) => acc ++ scope }
+
+  /** returns the entity defined at the top level of this package for name `i`, or `UnknownEntity()` if there is none */
+  def topLevelLookup(i: String): Entity = topLevelIndex.getOrElse(i, UnknownEntity())
+
   lazy val entity: PIdnNode => Entity =
     attr[PIdnNode, Entity] {
       case w@PWildcard() => Wildcard(w, this)
@@ -137,7 +137,8 @@ trait BaseTyping { this: TypeInfoImpl =>
 
       override def safe(n: T): Boolean = wellDef.valid(n)
 
-      override def compute(n: T): Type = inference(n)
+      // interned such that attributes keyed by the inferred type are shared among structurally equal types
+      override def compute(n: T): Type = intern(inference(n))
     }
 
   private[typing] def createWellDefInference[X <: AnyRef, Z](wellDef: X => Boolean)(inference: X => Z): X => Option[Z] =
@@ -0,0 +1,77 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.reporting
+
+import com.typesafe.scalalogging.LazyLogging
+
+import java.util.concurrent.{ArrayBlockingQueue, ConcurrentLinkedQueue, ExecutionException, Future, RejectedExecutionHandler, ThreadFactory, ThreadPoolExecutor, TimeUnit}
+
+/**
+  * Renders and writes output files (e.g. the files generated by `--printVpr`) on a dedicated thread such that the
+  * reporting thread is not blocked. Jobs are executed in the order in which they have been submitted, which ensures
+  * that the last job writing to a file determines the file's content. If `QueueCapacity` jobs are pending, submitting
+  * a further job blocks until the writer thread has caught up.
+  */
+object AsyncFileWriter extends LazyLogging {
+
+  val QueueCapacity = 64
+
+  /** blocks the submitting thread until there is space in the queue (instead of running the job out of order) */
+  private object BlockWhenFull extends RejectedExecutionHandler {
+    override def rejectedExecution(r: Runnable, executor: ThreadPoolExecutor): Unit = {
+      if (!executor.isShutdown) executor.getQueue.put(r)
+    }
+  }
+
+  private object WriterThreadFactory extends ThreadFactory {
+    override def newThread(r: Runnable): Thread = {
+      val thread = new Thread(r, "gobra-file-writer")
+      thread.setDaemon(true)
+      thread
+    }
+  }
+
+  private lazy val executor: ThreadPoolExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+    new ArrayBlockingQueue[Runnable](QueueCapacity), WriterThreadFactory, BlockWhenFull)
+
+  private val pending: ConcurrentLinkedQueue[Future[_]] = new ConcurrentLinkedQueue()
+
+  /** schedules `job`, which typically renders an artefact and writes it to a file */
+  def submit(job: () => Unit): Unit = {
+    val future = executor.submit(new Runnable {
+      override def run(): Unit =
+        try job() catch {
+          case e: Exception => logger.error(s"Writing an output file failed: ${e.getLocalizedMessage}", e)
+        }
+    })
+    pending.add(future)
+    // forget about completed jobs such that `pending` does not grow if `flush` is never called
+    while (Option(pending.peek()).exists(_.isDone)) pending.poll()
+  }
+
+  /**
+    * Waits until all jobs that have been submitted before this call have been completed. In contrast to `flush`,
+    * jobs submitted concurrently (e.g. by other verification tasks) after this call are not waited for.
+    */
+  def awaitSubmitted(): Unit = {
+    // jobs are executed in order, thus all previously submitted jobs are completed once a no-op job has run
+    if (!pending.isEmpty) {
+      try executor.submit(new Runnable { override def run(): Unit = () }).get() catch {
+        case _: ExecutionException =>
+      }
+    }
+  }
+
+  /** waits until all jobs that have been submitted so far have been completed */
+  def flush(): Unit = {
+    Iterator.continually(pending.poll()).takeWhile(_ != null).foreach { future =>
+      try future.get() catch {
+        case _: ExecutionException => // already logged by the job
+      }
+    }
+  }
+}
@@ -29,9 +29,9 @@ object BackTranslator {
 
   def backTranslate(result: BackendVerifier.Result)(@unused config: Config): VerifierResult = result match {
     case BackendVerifier.Success => VerifierResult.Success
-    case BackendVerifier.Failure(errors, backtrack) =>
+    case BackendVerifier.Failure(errors, backtrack, timeouts) =>
       val errorTranslator = new DefaultErrorBackTranslator(backtrack)
-      VerifierResult.Failure(errors map errorTranslator.translate)
+      VerifierResult.Failure((errors map errorTranslator.translate) ++ timeouts)
   }
 
   implicit class RichErrorMessage(error: silver.verifier.ErrorMessage) {
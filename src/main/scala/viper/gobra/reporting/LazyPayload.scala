@@ -0,0 +1,23 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.reporting
+
+/**
+  * Payload of a message that is computed when it is requested for the first time. The payload is computed at most
+  * once, even if several reporters request it concurrently, and the computation is released afterwards.
+  */
+final class LazyPayload[+T] private (compute: => T) extends (() => T) {
+  private lazy val value: T = compute
+
+  override def apply(): T = value
+
+  override def toString: String = "LazyPayload"
+}
+
+object LazyPayload {
+  def apply[T](compute: => T): () => T = new LazyPayload(compute)
+}
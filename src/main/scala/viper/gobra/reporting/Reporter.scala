@@ -82,18 +82,24 @@ case class FileWriterReporter(name: String = "filewriter_reporter",
     }
   }
 
-  private def write(inputs: Vector[String], fileExt: String, content: String): Unit = {
+  private def write(inputs: Vector[String], fileExt: String, content: => String): Unit = {
     // this message belongs to multiple inputs. We simply pick the first one for the resulting file's name
-    Violation.violation(inputs.nonEmpty, s"expected at least one file path for which the following message was reported: '$content''")
+    Violation.violation(inputs.nonEmpty, s"expected at least one file path for which a message with extension '$fileExt' was reported")
     write(inputs.head, fileExt, content)
   }
 
-  private def write(input: String, fileExt: String, content: String): Unit = {
+  /**
+    * `content` is rendered and written by [[AsyncFileWriter]], i.e., neither rendering nor writing blocks the
+    * reporting thread. All pending writes are completed when the execution context is terminated.
+    */
+  private def write(input: String, fileExt: String, content: => String): Unit = {
     val outputFile = OutputUtil.postfixFile(Paths.get(input), fileExt)
-    try {
-      FileUtils.writeStringToFile(outputFile.toFile, content, UTF_8)
-    } catch {
-      case _: UnsupportedOperationException => println(s"cannot write output to file $outputFile")
+    AsyncFileWriter.submit { () =>
+      try {
+        FileUtils.writeStringToFile(outputFile.toFile, content, UTF_8)
+      } catch {
+        case _: UnsupportedOperationException => println(s"cannot write output to file $outputFile")
+      }
     }
   }
 }
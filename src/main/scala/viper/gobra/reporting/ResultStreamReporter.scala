@@ -0,0 +1,73 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.reporting
+
+import org.apache.commons.text.StringEscapeUtils
+
+import java.io.{BufferedWriter, FileOutputStream, OutputStreamWriter}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.Path
+
+/**
+  * Writes the outcome of every verified member as soon as it is reported. The output is in NDJSON format, i.e., every
+  * line is a self-contained JSON object, such that consumers (e.g. CI jobs or dashboards) can process results while
+  * the verification is still running. The output can be a regular file or a named pipe.
+  *
+  * @param output file to which results are written
+  * @param reporter nested reporter, all messages received get forwarded to this reporter
+  */
+case class ResultStreamReporter(output: Path, reporter: GobraReporter) extends GobraReporter {
+  override val name: String = "result_stream_reporter"
+
+  private val writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output.toFile), UTF_8))
+  // verification of timed out packages might still report results after closing the output, which we ignore
+  private var closed = false
+
+  override def report(msg: GobraMessage): Unit = {
+    msg match {
+      case GobraEntitySuccessMessage(taskName, _, entity, info, time, cached) =>
+        writeMember(taskName, entity.name, info, "success", time, cached, Vector.empty)
+      case GobraEntityFailureMessage(taskName, _, entity, info, result, time, cached) =>
+        val errors = result match {
+          case VerifierResult.Failure(errs) => errs.map(_.formattedMessage)
+          case VerifierResult.Success => Vector.empty
+        }
+        writeMember(taskName, entity.name, info, "failure", time, cached, errors)
+      case VerificationTaskFinishedMessage(taskName) =>
+        writeLine(s"""{"event": "task_finished", "taskName": ${str(taskName)}}""")
+      case _ =>
+    }
+    // Pass message to next reporter
+    reporter.report(msg)
+  }
+
+  private def writeMember(taskName: String, member: String, info: Source.Verifier.Info, result: String, time: Long, cached: Boolean, errors: Vector[String]): Unit = {
+    val pos = info.origin.pos
+    writeLine(
+      s"""{"event": "member", "taskName": ${str(taskName)}, "member": ${str(member)}, """ +
+      s""""file": ${str(pos.file.toString)}, "line": ${pos.start.line}, "column": ${pos.start.column}, """ +
+      s""""result": ${str(result)}, "cached": $cached, "time": $time, "errors": [${errors.map(str).mkString(", ")}]}"""
+    )
+  }
+
+  private def str(s: String): String = "\"" + StringEscapeUtils.escapeJson(s) + "\""
+
+  private def writeLine(line: String): Unit = writer.synchronized {
+    if (!closed) {
+      writer.write(line)
+      writer.newLine()
+      // flush every line such that consumers see results immediately
+      writer.flush()
+    }
+  }
+
+  /** closes the underlying output. Results reported afterwards are only forwarded to the nested reporter */
+  def close(): Unit = writer.synchronized {
+    closed = true
+    writer.close()
+  }
+}
@@ -6,7 +6,6 @@
 
 package viper.gobra.reporting
 
-import org.apache.commons.io.FileUtils
 import org.bitbucket.inkytonik.kiama.relation.NodeNotInTreeException
 import viper.gobra.ast.frontend.{PClosureDecl, PDomainType, PExpression, PFPredicateDecl, PFunctionDecl, PFunctionSpec, PMPredicateDecl, PMPredicateSig, PMethodDecl, PMethodImplementationProof, PMethodSig, PNode, PPackage, PParameter, PPredConstructor, PProgram}
 import viper.gobra.ast.internal.BuiltInMember
@@ -19,7 +18,8 @@ import viper.silver.reporter.Time
 
 import scala.collection.concurrent.{Map, TrieMap}
 import java.nio.charset.StandardCharsets.UTF_8
-import java.io.File
+import java.io.{File, StringWriter, Writer}
+import java.nio.file.Files
 
 /**
  * Enum used to identify the type of a Gobra node, used when exporting the statistics
@@ -63,25 +63,38 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
   private val i = "  "
   case class GobraMemberEntry(info: GobraMemberInfo, viperMembers: Map[String, ViperMemberEntry]) {
     def asJson(p: String = ""): String = {
-      val viperMembersJson = viperMembers.values.map(_.asJson(s"$p$i$i"))
-      val dependencies = this.dependencies().map(entry => s"""$p$i$i"${entry.info.id}"""")
-
-      s"""$p{
-         |$p$i"id": "${this.info.id}",
-         |$p$i"pkgId": "${info.pkgId}",
-         |$p$i"pkg": "${info.pkg}",
-         |$p$i"name": "${info.pkg}.${info.memberName}",
-         |$p$i"args": "${info.args}",
-         |$p$i"nodeType": "${info.nodeType}",
-         |$p$i"trusted": ${info.isTrusted},
-         |$p$i"abstract": ${info.isAbstractAndNotImported},
-         |$p$i"viperMembers": [
-            |${viperMembersJson.mkString(",\n")}
-         |$p$i],
-         |$p$i"dependencies": [
-            |${dependencies.mkString(",\n")}
-         |$p$i]
-         |$p}""".stripMargin
+      val writer = new StringWriter()
+      writeJson(writer, p)
+      writer.toString
+    }
+
+    /**
+     * Writes the JSON representation of this entry to `writer` without building it as a single string first
+     */
+    def writeJson(writer: Writer, p: String = ""): Unit = {
+      writer.write(
+        s"""$p{
+           |$p$i"id": "${this.info.id}",
+           |$p$i"pkgId": "${info.pkgId}",
+           |$p$i"pkg": "${info.pkg}",
+           |$p$i"name": "${info.pkg}.${info.memberName}",
+           |$p$i"args": "${info.args}",
+           |$p$i"nodeType": "${info.nodeType}",
+           |$p$i"trusted": ${info.isTrusted},
+           |$p$i"abstract": ${info.isAbstractAndNotImported},
+           |$p$i"viperMembers": [
+           |""".stripMargin)
+      writeSeparated(writer, viperMembers.values)(_.writeJson(writer, s"$p$i$i"))
+      writer.write(
+        s"""
+           |$p$i],
+           |$p$i"dependencies": [
+           |""".stripMargin)
+      writeSeparated(writer, this.dependencies())(entry => writer.write(s"""$p$i$i"${entry.info.id}""""))
+      writer.write(
+        s"""
+           |$p$i]
+           |$p}""".stripMargin)
     }
 
     def dependencies(): Set[GobraMemberEntry] = {
@@ -95,7 +108,8 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
   }
 
   /**
-   * We don't store AST nodes to prevent memory overflows, since they otherwise would not be garbage collected
+   * We don't store AST nodes to prevent memory overflows, since they otherwise would not be garbage collected.
+   * All strings stored in an entry are interned (see [[intern]]).
    */
   case class ViperMemberEntry(memberName: String,
                               taskName: String,
@@ -108,25 +122,35 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
                               hasBody: Boolean,
                               verified: Boolean) {
 
-    val id: String = viperMemberKey(taskName, memberName)
+    def id: String = viperMemberKey(taskName, memberName)
 
     def asJson(p: String = ""): String = {
-      s"""$p{
-         |$p$i"name": "${this.memberName}",
-         |$p$i"taskName": "${this.taskName}",
-         |$p$i"time": ${this.time},
-         |$p$i"nodeType": "${this.nodeType}",
-         |$p$i"success": ${this.success},
-         |$p$i"cached": ${this.cached},
-         |$p$i"fromImport": ${this.fromImport},
-         |$p$i"hasBody": ${this.hasBody},
-         |$p$i"verified": ${this.verified}
-         |$p}""".stripMargin
+      val writer = new StringWriter()
+      writeJson(writer, p)
+      writer.toString
+    }
+
+    /**
+     * Writes the JSON representation of this entry to `writer` field by field
+     */
+    def writeJson(writer: Writer, p: String = ""): Unit = {
+      writer.write(s"$p{\n")
+      writer.write(s"""$p$i"name": "${this.memberName}",\n""")
+      writer.write(s"""$p$i"taskName": "${this.taskName}",\n""")
+      writer.write(s"""$p$i"time": ${this.time},\n""")
+      writer.write(s"""$p$i"nodeType": "${this.nodeType}",\n""")
+      writer.write(s"""$p$i"success": ${this.success},\n""")
+      writer.write(s"""$p$i"cached": ${this.cached},\n""")
+      writer.write(s"""$p$i"fromImport": ${this.fromImport},\n""")
+      writer.write(s"""$p$i"hasBody": ${this.hasBody},\n""")
+      writer.write(s"""$p$i"verified": ${this.verified}\n""")
+      writer.write(s"$p}")
     }
   }
 
   /**
-   * We don't store AST nodes to prevent memory overflows, since they otherwise would not be garbage collected
+   * We don't store AST nodes to prevent memory overflows, since they otherwise would not be garbage collected.
+   * Package identifiers and names are interned (see [[intern]]).
    */
   case class GobraMemberInfo(pkgId: String,
                              pkg: String,
@@ -138,7 +162,25 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
                              isAbstractAndNotImported: Boolean,
                              isImported: Boolean,
                              isBuiltIn: Boolean) {
-    val id: String = gobraMemberKey(pkgId, memberName, args)
+    def id: String = gobraMemberKey(pkgId, memberName, args)
+  }
+
+  // Task names, package identifiers, and Viper member names occur in a large number of entries. We intern them such
+  // that all entries share the same string instances
+  private val internedStrings: Map[String, String] = TrieMap()
+
+  private def intern(s: String): String = internedStrings.getOrElseUpdate(s, s)
+
+  /**
+   * Writes the elements of `elems` using `write` and separates them by ",\n". Used for all arrays of the report
+   */
+  private def writeSeparated[T](writer: Writer, elems: Iterable[T])(write: T => Unit): Unit = {
+    var first = true
+    elems.foreach(elem => {
+      if (!first) writer.write(",\n")
+      first = false
+      write(elem)
+    })
   }
 
   override val name: String = "StatsCollector"
@@ -158,11 +200,11 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
           addResult(
             memberInfo,
             ViperMemberEntry(
-              viperMember.name,
-              taskName,
+              intern(viperMember.name),
+              intern(taskName),
               time,
               ViperNodeType.withName(viperMember.getClass.getSimpleName),
-              Edges.dependencies(viperMember).flatMap(edge => vertexToName(edge._2)).toSet,
+              Edges.dependencies(viperMember).flatMap(edge => vertexToName(edge._2)).map(intern).toSet,
               success,
               cached,
               memberInfo.isImported,
@@ -197,7 +239,7 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
 
   private def viperMemberKey(taskName: String, viperMemberName: String): String = taskName + "-" + viperMemberName
 
-  private def addResult(gobraMemberInfo: GobraMemberInfo, viperMember: ViperMemberEntry): Unit = {
+  private[reporting] def addResult(gobraMemberInfo: GobraMemberInfo, viperMember: ViperMemberEntry): Unit = {
     memberMap.get(gobraMemberInfo.id) match {
       case Some(existing) =>
         existing.viperMembers.get(viperMember.id) match {
@@ -274,8 +316,8 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
         }
       }
 
-    val pkgName = nodeTypeInfo.pkgName.name
-    val pkgId = nodeTypeInfo.pkgInfo.id
+    val pkgName = intern(nodeTypeInfo.pkgName.name)
+    val pkgId = intern(nodeTypeInfo.pkgInfo.id)
     val isBuiltIn = nodeTypeInfo.pkgInfo.isBuiltIn
 
     // Replace whitespaces in arguments by a single space, since some types contain newlines
@@ -406,6 +448,16 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
     memberMap.values
       .flatMap(_.viperMembers.values).count(_.cached)
 
+  /**
+   * Returns the task name, member name, and verification time of every Viper member with a body that has been verified
+   * (i.e., not been retrieved from the cache)
+   */
+  def getViperMemberVerificationTimes: Iterable[(String, String, Time)] =
+    memberMap.values
+      .flatMap(_.viperMembers.values)
+      .filter(member => member.verified && !member.cached && member.hasBody)
+      .map(member => (member.taskName, member.memberName, member.time))
+
   /**
    * Returns the number of viper methods that have a body
    */
@@ -462,16 +514,29 @@ case class StatsCollector(reporter: GobraReporter) extends GobraReporter {
   def writeJsonReportToFile(file: File): Boolean = {
     val canWrite = (file.exists() && file.canWrite) || file.getParentFile.canWrite
     if (canWrite) {
-      FileUtils.writeStringToFile(file, getJsonReport, UTF_8)
+      val writer = Files.newBufferedWriter(file.toPath, UTF_8)
+      try {
+        writeJsonReport(writer)
+      } finally {
+        writer.close()
+      }
     }
     canWrite
   }
 
   def getJsonReport: String = {
-    val memberJson = memberMap.values.map(_.asJson(i)).mkString(", \n")
-    s"""[
-     |$memberJson
-     |]""".stripMargin
+    val writer = new StringWriter()
+    writeJsonReport(writer)
+    writer.toString
+  }
+
+  /**
+   * Writes the report entry by entry to `writer` such that the report never has to be kept in memory as a whole
+   */
+  def writeJsonReport(writer: Writer): Unit = {
+    writer.write("[\n")
+    writeSeparated(writer, memberMap.values)(_.writeJson(writer, i))
+    writer.write("\n]")
   }
 
   /**
@@ -0,0 +1,94 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.translator
+
+import com.typesafe.scalalogging.LazyLogging
+import viper.gobra.ast.frontend.PNode
+import viper.gobra.ast.internal.{Node, Program}
+import viper.gobra.backend.BackendVerifier
+import viper.gobra.reporting.{Source, VerifierError}
+import viper.gobra.util.LruCache
+
+import scala.util.hashing.MurmurHash3
+
+/**
+  * Reuses the Viper encoding (incl. the back-translation info) of programs that have been encoded before in the same
+  * process (e.g. the IDE server re-verifying an unchanged package whose parse AST and type information are cached).
+  *
+  * The encoding and the error and reason transformers of its back-translation info refer to the frontend nodes and
+  * origins of the encoded program. Thus, an encoding is only reused for a program that is identical to the encoded
+  * one: internal nodes are compared structurally including their source infos, frontend nodes by identity, and the
+  * lookup table is ignored as it is derived from the program's members. For such a program, encoding would result in
+  * a Viper program and back-translation info that refer to the same frontend nodes and to equal origins.
+  *
+  * Entries are keyed by a hash computed by the same traversal, which is considerably cheaper than serializing the
+  * program. Since the back-translation info consists of closures, encodings are not stored on disk.
+  */
+object EncodingCache extends LazyLogging {
+
+  /** maximum number of encodings kept in memory */
+  val MemoryCapacity: Int = 16
+
+  private val memory: LruCache[Int, (Program, BackendVerifier.Task)] = new LruCache
+
+  /** returns the cached encoding of `program` or computes it using `encode`. Failed encodings are not cached */
+  def getOrEncode(program: Program)
+                 (encode: => Either[Vector[VerifierError], BackendVerifier.Task]): Either[Vector[VerifierError], BackendVerifier.Task] = {
+    val key = hash(program)
+    memory.get(key) match {
+      case Some((encoded, task)) if identical(encoded, program) =>
+        logger.debug("Viper encoding skipped, the encoding has been found in the encoding cache")
+        Right(task)
+      case _ =>
+        val res = encode
+        res.foreach(task => memory.put(key, (program, task), Some(MemoryCapacity)))
+        res
+    }
+  }
+
+  /** hash that is consistent with [[identical]] */
+  private[translator] def hash(x: Any): Int = x match {
+    case p: Program => MurmurHash3.orderedHash(Seq(hash(p.types), hash(p.members), hashInfo(p.info)))
+    case n: PNode => System.identityHashCode(n)
+    case n: Node => MurmurHash3.mix(MurmurHash3.mix(n.productPrefix.##, hashInfo(n.info)), MurmurHash3.orderedHash(n.productIterator.map(hash)))
+    case p: Product => MurmurHash3.mix(p.productPrefix.##, MurmurHash3.orderedHash(p.productIterator.map(hash)))
+    case it: Iterable[_] => MurmurHash3.orderedHash(it.iterator.map(hash))
+    case other => other.##
+  }
+
+  /** returns whether `x` and `y` are structurally equal, incl. the source infos of internal nodes */
+  private[translator] def identical(x: Any, y: Any): Boolean = (x, y) match {
+    case (p1: Program, p2: Program) =>
+      identical(p1.types, p2.types) && identical(p1.members, p2.members) && identicalInfo(p1.info, p2.info)
+    case (n1: PNode, n2: PNode) => n1 eq n2
+    case (n1: Node, n2: Node) =>
+      n1.getClass == n2.getClass && identicalInfo(n1.info, n2.info) && identicalElements(n1.productIterator, n2.productIterator)
+    case (p1: Product, p2: Product) =>
+      p1.getClass == p2.getClass && identicalElements(p1.productIterator, p2.productIterator)
+    case (it1: Iterable[_], it2: Iterable[_]) =>
+      identicalElements(it1.iterator, it2.iterator)
+    case _ => x == y
+  }
+
+  private def identicalElements(xs: Iterator[Any], ys: Iterator[Any]): Boolean = {
+    while (xs.hasNext && ys.hasNext) {
+      if (!identical(xs.next(), ys.next())) return false
+    }
+    !xs.hasNext && !ys.hasNext
+  }
+
+  private def hashInfo(info: Source.Parser.Info): Int = info match {
+    case Source.Parser.Single(pnode, src) => MurmurHash3.mix(System.identityHashCode(pnode), src.##)
+    case other => System.identityHashCode(other)
+  }
+
+  private def identicalInfo(i1: Source.Parser.Info, i2: Source.Parser.Info): Boolean = (i1, i2) match {
+    case (Source.Parser.Single(pnode1, src1), Source.Parser.Single(pnode2, src2)) => (pnode1 eq pnode2) && src1 == src2
+    // the remaining infos are singletons
+    case _ => i1 eq i2
+  }
+}
@@ -10,16 +10,19 @@ package viper.gobra.translator
 import viper.gobra.ast.internal.Program
 import viper.gobra.backend.BackendVerifier
 import viper.gobra.frontend.{Config, PackageInfo}
-import viper.gobra.reporting.{ConsistencyError, GeneratedViperMessage, TransformerFailureMessage, VerifierError}
+import viper.gobra.reporting.{ConsistencyError, GeneratedViperMessage, LazyPayload, TransformerFailureMessage, VerifierError}
 import viper.gobra.translator.context.DfltTranslatorConfig
 import viper.gobra.translator.encodings.programs.ProgramsImpl
 import viper.gobra.translator.transformers.{AssumeTransformer, TerminationTransformer, ViperTransformer}
-import viper.gobra.util.Violation
+import viper.gobra.util.{GobraExecutionContext, Violation}
 import viper.silver.ast.{AbstractSourcePosition, SourcePosition}
 import viper.silver.ast.pretty.FastPrettyPrinter
 import viper.silver.verifier.AbstractError
 import viper.silver.{ast => vpr}
 
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, Future}
+
 object Translator {
 
   private def createConsistencyErrors(errs: Seq[AbstractError]): Vector[ConsistencyError] =
@@ -31,7 +34,8 @@ object Translator {
       ConsistencyError(err.readableMessage, pos)
     }).toVector
 
-  def translate(program: Program, pkgInfo: PackageInfo)(config: Config): Either[Vector[VerifierError], BackendVerifier.Task] = {
+  /** encodes `program` and applies the Viper transformers to the encoding */
+  private def encode(program: Program): Either[Vector[VerifierError], BackendVerifier.Task] = {
     val translationConfig = new DfltTranslatorConfig()
     val programTranslator = new ProgramsImpl()
     val task = programTranslator.translate(program)(translationConfig)
@@ -41,15 +45,21 @@ object Translator {
       new TerminationTransformer
     )
 
-    val transformedTask = transformers.foldLeft[Either[Vector[VerifierError], BackendVerifier.Task]](Right(task)) {
+    transformers.foldLeft[Either[Vector[VerifierError], BackendVerifier.Task]](Right(task)) {
       case (Right(t), transformer) => transformer.transform(t).left.map(createConsistencyErrors)
       case (errs, _) => errs
     }
+  }
+
+  def translate(program: Program, pkgInfo: PackageInfo)(config: Config)(implicit executor: GobraExecutionContext): Either[Vector[VerifierError], BackendVerifier.Task] = {
+    val transformedTask =
+      if (config.cacheViperEncoding) EncodingCache.getOrEncode(program)(encode(program))
+      else encode(program)
 
     if (config.checkConsistency) {
       transformedTask
         .flatMap(task => {
-          val consistencyErrs = task.program.checkTransitively
+          val consistencyErrs = checkConsistency(task.program)
           if (consistencyErrs.isEmpty) Right(())
           else Left(createConsistencyErrors(consistencyErrs))
         })
@@ -59,29 +69,48 @@ object Translator {
     val inputs = config.packageInfoInputMap(pkgInfo).map(_.name)
     transformedTask.fold(
       errs => config.reporter report TransformerFailureMessage(inputs, errs),
-      task => config.reporter report GeneratedViperMessage(config.taskName, inputs, () => sortAst(task.program), () => task.backtrack))
+      task => {
+        config.reporter report GeneratedViperMessage(config.taskName, inputs, LazyPayload(sortAst(task.program)), () => task.backtrack)
+      })
     transformedTask
   }
 
+  /**
+    * Performs the same consistency checks as `program.checkTransitively` but checks the members of `program` in
+    * parallel on `executor`. Program-level checks are performed once. Errors are returned in the order of the program's
+    * members.
+    */
+  def checkConsistency(program: vpr.Program)(implicit executor: GobraExecutionContext): Seq[AbstractError] = {
+    val memberChecks = Future.sequence(program.members.map(member => Future { member.checkTransitively }))
+    program.check ++ Await.result(memberChecks, Duration.Inf).flatten
+  }
+
   /**
     * sorts AST members alphabetically to ease the comparison of (similar) Viper ASTs
     */
-  def sortAst(program: vpr.Program): vpr.Program = {
+  def sortAst(program: vpr.Program)(implicit executor: GobraExecutionContext): vpr.Program = {
     lazy val memberOrdering: Ordering[vpr.Member] = Ordering.by(_.name)
     implicit lazy val domainFnOrdering: Ordering[vpr.DomainFunc] = Ordering.by(_.name)
-    implicit lazy val domainAxOrdering: Ordering[vpr.DomainAxiom] = Ordering.by(FastPrettyPrinter.pretty(_))
 
     def sortDomain(domain: vpr.Domain): vpr.Domain = {
+      // axioms are sorted by their pretty-printed representation, which is computed once per axiom
+      val sortedAxioms = domain.axioms
+        .map(ax => (FastPrettyPrinter.pretty(ax), ax))
+        .sortBy(_._1)
+        .map(_._2)
       vpr.Domain(
         domain.name,
         domain.functions.sorted,
-        domain.axioms.sorted,
+        sortedAxioms,
         domain.typVars
       )(domain.pos, domain.info, domain.errT)
     }
 
+    // domains are sorted independently of each other, thus in parallel
+    val sortedDomains = Await.result(Future.sequence(program.domains.map(domain => Future { sortDomain(domain) })), Duration.Inf)
+
     vpr.Program(
-      program.domains.map(sortDomain).sorted(memberOrdering),
+      sortedDomains.sorted(memberOrdering),
       program.fields.sorted(memberOrdering),
       program.functions.sorted(memberOrdering),
       program.predicates.sorted(memberOrdering),
@@ -12,11 +12,13 @@ import viper.silver.{ast => vpr}
 import viper.silver.frontend.{DefaultStates, ViperAstProvider}
 import viper.silver.plugin.SilverPlugin
 import viper.silver.plugin.standard.predicateinstance.PredicateInstance.PredicateInstanceDomainName
-import viper.silver.plugin.standard.termination.{DecreasesTuple, TerminationPlugin}
+import viper.silver.plugin.standard.termination.{DecreasesClause, DecreasesTuple, TerminationPlugin}
 import viper.silver.reporter.{NoopReporter, Reporter}
 import viper.silver.plugin.standard.predicateinstance.PredicateInstancePlugin
 import viper.silver.verifier.AbstractError
 
+import scala.collection.concurrent.TrieMap
+
 class TerminationTransformer extends ViperTransformer {
 
   override def transform(task: BackendVerifier.Task): Either[Seq[AbstractError], BackendVerifier.Task] = {
@@ -45,9 +47,7 @@ class TerminationTransformer extends ViperTransformer {
     }
 
     // find the types of all expressions used as decreases measures
-    val measureTypes = task.program.deepCollect {
-      case DecreasesTuple(tupleExpressions, _) => tupleExpressions.map(_.typ)
-    }
+    val measureTypes = collectMeasureTypes(task.program)
     // does program contain any (possibly empty) decreases tuples?
     val containsTerminationChecks: Boolean = measureTypes.nonEmpty
     val distinctMeasureTypes = measureTypes.flatten.distinct
@@ -65,10 +65,79 @@ class TerminationTransformer extends ViperTransformer {
     val importsAll = imports.contains(allImport)
     /** list of Viper standard imports that should be parsed */
     val filteredImports = if (importsAll) Seq(allImport) else imports
-    val progWithImports = filteredImports.map(p => s"import <${p}>").mkString("\n")
+    if (filteredImports.isEmpty) {
+      Right(task)
+    } else {
+      for {
+        vprProgram <- parseImports(filteredImports)
+      } yield combine(task, vprProgram)
+    }
+  }
+
+  /**
+    * Returns the types of the expressions of every decreases tuple in `program`. The encoding places decreases clauses
+    * as top-level preconditions of functions and methods and as top-level loop invariants. Thus, only specifications,
+    * the statements of method bodies, and assertion statements are traversed, which is considerably cheaper than a
+    * traversal of the entire program. If a decreases clause occurs anywhere else in a specification or in an assertion
+    * statement, or if a method body contains a statement that is not handled, the entire program is traversed instead.
+    */
+  private def collectMeasureTypes(program: vpr.Program): Seq[Seq[vpr.Type]] =
+    collectMeasureTypesFromSpecs(program).getOrElse(
+      program.deepCollect { case DecreasesTuple(tupleExpressions, _) => tupleExpressions.map(_.typ) }
+    )
+
+  /** returns None if `program` contains a shape that is not handled by [[collectMeasureTypes]] */
+  private def collectMeasureTypesFromSpecs(program: vpr.Program): Option[Seq[Seq[vpr.Type]]] = {
+    def containsDecreasesClause(exp: vpr.Exp): Boolean = exp.existsDefined { case _: DecreasesClause => }
+
+    def fromSpec(spec: vpr.Exp): Option[Seq[Seq[vpr.Type]]] = spec match {
+      case DecreasesTuple(tupleExpressions, _) => Some(Seq(tupleExpressions.map(_.typ)))
+      case _: DecreasesClause => Some(Seq.empty)
+      case _ if containsDecreasesClause(spec) => None
+      case _ => Some(Seq.empty)
+    }
+
+    def fromAssertion(exp: vpr.Exp): Option[Seq[Seq[vpr.Type]]] =
+      if (containsDecreasesClause(exp)) None else Some(Seq.empty)
+
+    def fromStmt(stmt: vpr.Stmt): Option[Seq[Seq[vpr.Type]]] = stmt match {
+      case vpr.Seqn(ss, _) => all(ss)(fromStmt)
+      case vpr.If(_, thn, els) => all(Seq(thn, els))(fromStmt)
+      case vpr.While(_, invs, body) => all(invs)(fromSpec).zip(fromStmt(body)).map { case (l, r) => l ++ r }
+      case vpr.Assert(exp) => fromAssertion(exp)
+      case vpr.Assume(exp) => fromAssertion(exp)
+      case vpr.Inhale(exp) => fromAssertion(exp)
+      case vpr.Exhale(exp) => fromAssertion(exp)
+      // statements that contain neither statements nor assertions
+      case _: vpr.LocalVarAssign | _: vpr.FieldAssign | _: vpr.MethodCall | _: vpr.NewStmt | _: vpr.LocalVarDeclStmt |
+           _: vpr.Fold | _: vpr.Unfold | _: vpr.Label | _: vpr.Goto => Some(Seq.empty)
+      case _ => None
+    }
+
+    def all[T](xs: Seq[T])(f: T => Option[Seq[Seq[vpr.Type]]]): Option[Seq[Seq[vpr.Type]]] =
+      xs.foldLeft[Option[Seq[Seq[vpr.Type]]]](Some(Seq.empty)) { case (acc, x) => acc.flatMap(l => f(x).map(l ++ _)) }
+
     for {
-      vprProgram <- parseVpr(progWithImports)
-    } yield combine(task, vprProgram)
+      fromFunctions <- all(program.functions)(f => all(f.pres)(fromSpec))
+      fromMethods <- all(program.methods)(m => all(m.pres)(fromSpec).zip(all(m.body.toSeq)(fromStmt)).map { case (l, r) => l ++ r })
+    } yield fromFunctions ++ fromMethods
+  }
+
+  /**
+    * Returns the parsed Viper program consisting of the given standard imports. Since the resulting AST only depends
+    * on the set of imports, parsed programs are cached for the lifetime of the JVM.
+    */
+  private def parseImports(imports: Seq[String]): Either[Seq[AbstractError], vpr.Program] = {
+    val key = imports.sorted
+    TerminationTransformer.parsedImports.get(key) match {
+      case Some(program) => Right(program)
+      case None =>
+        val progWithImports = key.map(p => s"import <${p}>").mkString("\n")
+        parseVpr(progWithImports).map(program => {
+          TerminationTransformer.parsedImports.putIfAbsent(key, program)
+          program
+        })
+    }
   }
 
   private def parseVpr(program: String): Either[Seq[AbstractError], vpr.Program] = {
@@ -139,3 +208,8 @@ class TerminationTransformer extends ViperTransformer {
     }
   }
 }
+
+object TerminationTransformer {
+  /** maps a sorted list of Viper standard imports to the program resulting from parsing these imports */
+  private val parsedImports: TrieMap[Seq[String], vpr.Program] = TrieMap()
+}
@@ -0,0 +1,182 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.util
+
+import java.io.{FileReader, FileWriter}
+import java.nio.file.{Files, Path}
+import java.util.Properties
+import viper.silver.{ast => vpr}
+import viper.silver.reporter.Time
+
+import scala.jdk.CollectionConverters._
+
+/**
+  * Cost model predicting the solver time of Viper members based on the verification times observed in previous runs.
+  * The observed times are persisted in the Gobra directory and are keyed by task name and Viper member name.
+  *
+  * @param costs maps a task name and the name of a Viper member to its expected verification time in ms
+  */
+class ChopperCostModel(val costs: Map[String, Map[String, Time]]) {
+
+  /** Predicts the verification time of `member` in task `taskName`. Returns None if no time has been observed so far. */
+  def predict(taskName: String, member: vpr.Member): Option[Time] =
+    costs.get(taskName).flatMap(_.get(member.name))
+
+  /**
+    * Predicts the verification time of a (chopped) program. Only members with a body contribute to the cost.
+    * Members without recorded cost are assumed to take as long as the average recorded member of the task. If no
+    * timing is known at all, every member costs 1 such that the model degrades to balancing the number of members.
+    */
+  def predict(taskName: String, program: vpr.Program): Time = {
+    val knownCosts = costs.getOrElse(taskName, Map.empty).values
+    val dflt = if (knownCosts.isEmpty) 1L else math.max(1L, knownCosts.sum / knownCosts.size)
+    program.members.collect {
+      case m: vpr.Method if m.body.isDefined => predict(taskName, m).getOrElse(dflt)
+      case f: vpr.Function if f.body.isDefined => predict(taskName, f).getOrElse(dflt)
+      case p: vpr.Predicate if p.body.isDefined => predict(taskName, p).getOrElse(dflt)
+    }.sum
+  }
+
+  /**
+    * Distributes `programs` onto at most `bound` programs such that the maximum predicted verification time of the
+    * resulting programs is small. We use the longest-processing-time-first heuristic, i.e., programs are considered in
+    * order of decreasing predicted time and each one is merged into the currently cheapest partition.
+    */
+  def balance(taskName: String, programs: Vector[vpr.Program], bound: Int): Vector[vpr.Program] = {
+    if (programs.size <= bound) programs
+    else {
+      val partitions = Array.fill(bound)(Vector.empty[vpr.Program])
+      val loads = Array.fill(bound)(0L)
+      programs
+        .map(p => (p, predict(taskName, p)))
+        .sortBy(-_._2)
+        .foreach { case (program, cost) =>
+          val idx = loads.indices.minBy(i => loads(i))
+          loads(idx) += cost
+          partitions(idx) :+= program
+        }
+      partitions.toVector.filter(_.nonEmpty).map(ChopperCostModel.merge)
+    }
+  }
+
+  /**
+    * Returns a new cost model in which the given observations are taken into account.
+    * Observations are combined with the previously known cost using an exponential moving average.
+    */
+  def updated(observations: Iterable[(String, String, Time)]): ChopperCostModel = {
+    val newCosts = observations.foldLeft(costs) { case (acc, (taskName, memberName, time)) =>
+      val taskCosts = acc.getOrElse(taskName, Map.empty)
+      val cost = taskCosts.get(memberName) match {
+        case Some(old) => (ChopperCostModel.SmoothingFactor * time + (1 - ChopperCostModel.SmoothingFactor) * old).toLong
+        case None => time
+      }
+      acc.updated(taskName, taskCosts.updated(memberName, cost))
+    }
+    new ChopperCostModel(newCosts)
+  }
+}
+
+object ChopperCostModel {
+
+  val CostModelFileName = "chopper-costs.properties"
+
+  /** weight of a new observation when updating the expected cost of a member */
+  val SmoothingFactor = 0.5
+
+  /**
+    * Separates the task name from the member name in the keys of the stored file. Since the separator cannot occur in
+    * Viper identifiers, keys are split at its last occurrence, which is unambiguous for arbitrary task names.
+    */
+  val KeySeparator: Char = '#'
+
+  def key(taskName: String, memberName: String): String = s"$taskName$KeySeparator$memberName"
+
+  /** inverse of [[key]], returns None for keys that do not contain the separator */
+  def splitKey(key: String): Option[(String, String)] = {
+    val idx = key.lastIndexOf(KeySeparator)
+    if (idx < 0) None else Some((key.substring(0, idx), key.substring(idx + 1)))
+  }
+
+  val empty: ChopperCostModel = new ChopperCostModel(Map.empty)
+
+  /** Loads the cost model stored in `gobraDirectory` or returns an empty cost model if none exists. */
+  def load(gobraDirectory: Path): ChopperCostModel = {
+    val file = gobraDirectory.resolve(CostModelFileName).toFile
+    if (!file.exists()) {
+      empty
+    } else {
+      val settings = new Properties
+      val reader = new FileReader(file)
+      try settings.load(reader) finally reader.close()
+      val costs = settings.stringPropertyNames().asScala.toVector.flatMap { k =>
+        for {
+          (taskName, memberName) <- splitKey(k)
+          cost <- settings.getProperty(k).toLongOption
+        } yield (taskName, memberName, cost)
+      }
+      new ChopperCostModel(costs.groupBy(_._1).map { case (taskName, entries) => taskName -> entries.map(e => e._2 -> e._3).toMap })
+    }
+  }
+
+  /** Stores `model` in `gobraDirectory`. Returns true iff the file was written. */
+  def store(gobraDirectory: Path, model: ChopperCostModel): Boolean = {
+    try {
+      Files.createDirectories(gobraDirectory)
+      val settings = new Properties
+      for {
+        (taskName, taskCosts) <- model.costs
+        (memberName, cost) <- taskCosts
+      } settings.setProperty(key(taskName, memberName), cost.toString)
+      val writer = new FileWriter(gobraDirectory.resolve(CostModelFileName).toFile)
+      try settings.store(writer, "Expected verification time in ms per Viper member, learned by Gobra") finally writer.close()
+      true
+    } catch {
+      case _: java.io.IOException => false
+    }
+  }
+
+  /** Loads the cost model in `gobraDirectory`, takes the new observations into account, and stores the result. */
+  def record(gobraDirectory: Path, observations: Iterable[(String, String, Time)]): Boolean =
+    store(gobraDirectory, load(gobraDirectory).updated(observations))
+
+  /**
+    * Merges chopped programs into a single program. Members occurring in several programs are included once, where
+    * the version with a body is preferred. Domains are merged such that all functions and axioms are kept.
+    */
+  def merge(programs: Vector[vpr.Program]): vpr.Program = {
+    def mergeMembers[M <: vpr.Member](members: Seq[M])(hasBody: M => Boolean): Seq[M] = {
+      val byName = members.groupBy(_.name)
+      members.map(_.name).distinct.map { name =>
+        val candidates = byName(name)
+        candidates.find(hasBody).getOrElse(candidates.head)
+      }
+    }
+
+    def mergeDomains(domains: Seq[vpr.Domain]): Seq[vpr.Domain] = {
+      val byName = domains.groupBy(_.name)
+      domains.map(_.name).distinct.map { name =>
+        val candidates = byName(name)
+        val d = candidates.head
+        d.copy(
+          functions = candidates.flatMap(_.functions).distinct,
+          axioms = candidates.flatMap(_.axioms).distinct
+        )(d.pos, d.info, d.errT)
+      }
+    }
+
+    programs.reduce[vpr.Program] { case (l, r) =>
+      l.copy(
+        domains = mergeDomains(l.domains ++ r.domains),
+        fields = mergeMembers(l.fields ++ r.fields)(_ => false),
+        functions = mergeMembers(l.functions ++ r.functions)(_.body.isDefined),
+        predicates = mergeMembers(l.predicates ++ r.predicates)(_.body.isDefined),
+        methods = mergeMembers(l.methods ++ r.methods)(_.body.isDefined),
+        extensions = (l.extensions ++ r.extensions).distinct
+      )(l.pos, l.info, l.errT)
+    }
+  }
+}
@@ -25,11 +25,22 @@ object ChopperUtil {
   def computeChoppedPrograms(task: Task, pkgInfo: PackageInfo)(config: Config): Vector[vpr.Program] = {
 
 
-    val programs = Chopper.chop(task.program)(
-      selection = computeIsolateMap(config, pkgInfo),
-      bound = Some(config.choppingUpperBound),
-      penalty = getPenalty
-    )
+    val programs = if (config.adaptiveChopping) {
+      // chop as fine-grained as the penalty permits and then balance the resulting programs by their predicted
+      // verification time, which is learned from previous runs
+      val components = Chopper.chop(task.program)(
+        selection = computeIsolateMap(config, pkgInfo),
+        bound = None,
+        penalty = getPenalty
+      )
+      ChopperCostModel.load(config.gobraDirectory).balance(config.taskName, components, config.choppingUpperBound)
+    } else {
+      Chopper.chop(task.program)(
+        selection = computeIsolateMap(config, pkgInfo),
+        bound = Some(config.choppingUpperBound),
+        penalty = getPenalty
+      )
+    }
 
     // Report Chopped Programs
     programs.zipWithIndex.foreach{ case (chopped, idx) =>
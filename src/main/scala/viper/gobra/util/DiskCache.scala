@@ -0,0 +1,174 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.util
+
+import com.typesafe.scalalogging.LazyLogging
+import org.bitbucket.inkytonik.kiama.util.Positions
+import viper.gobra.GoVerifier
+import viper.gobra.ast.frontend.PositionManager
+import viper.gobra.frontend.Config
+import viper.gobra.reporting.AsyncFileWriter
+import viper.silver.ast.{LineColumnPosition, SourcePosition}
+
+import java.io._
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path, Paths, StandardCopyOption}
+import java.security.MessageDigest
+import java.util.zip.{GZIPInputStream, GZIPOutputStream}
+import scala.util.{Failure, Success, Try}
+
+/**
+  * Stores serialized objects in the subdirectory `<name>` of the Gobra directory, one file per key.
+  *
+  * A cache file consists of a header, which identifies the format and the Gobra version, followed by the compressed
+  * Java serialization of the object. Objects that are not serializable (e.g. Viper positions and the position
+  * manager of a package) are replaced by serializable surrogates. Callers can replace further objects, e.g. objects
+  * that have to be identified with objects of the current run when loading an entry. Entries with a different header
+  * are discarded and only classes of Gobra, Viper, Scala and the Java core libraries are deserialized.
+  *
+  * @param name the name of the directory storing the entries
+  * @param formatVersion has to be incremented whenever the representation of the stored objects changes incompatibly
+  */
+class DiskCache(name: String, formatVersion: Int) extends LazyLogging {
+
+  private val Magic: String = "GOBRA-CACHE"
+
+  private def cacheDir(config: Config): Path = config.gobraDirectory.resolve(name)
+
+  /**
+    * returns the object stored for `key`, if any. `resolve` maps the surrogates created by the `replace` function
+    * passed to [[store]] back to objects. It may throw an exception if a surrogate cannot be resolved, in which case
+    * the entry is discarded.
+    */
+  def load[T](config: Config, key: String, resolve: PartialFunction[AnyRef, AnyRef] = PartialFunction.empty): Option[T] = {
+    val file = cacheDir(config).resolve(key)
+    if (!Files.exists(file)) None
+    else {
+      val res = Try {
+        val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))
+        try {
+          if (in.readUTF() != Magic || in.readUTF() != name || in.readInt() != formatVersion || in.readUTF() != GoVerifier.version) None
+          else Some(new DiskCache.CacheInputStream(new GZIPInputStream(in), resolve).readObject().asInstanceOf[T])
+        } finally in.close()
+      }
+      res match {
+        case Success(Some(value)) => Some(value)
+        case Success(None) =>
+          logger.debug(s"discarding stale cache entry $file")
+          Files.deleteIfExists(file)
+          None
+        case Failure(e) =>
+          logger.debug(s"discarding unreadable cache entry $file: ${e.getLocalizedMessage}")
+          Files.deleteIfExists(file)
+          None
+      }
+    }
+  }
+
+  /**
+    * Stores `value` for `key`. The value is serialized on the file writer thread and written to a temporary file
+    * first such that concurrent runs never observe partially written entries. Thus, `value` must not be mutated
+    * afterwards. `replace` maps objects to serializable surrogates; the entry is not stored if it throws an exception.
+    */
+  def store(config: Config, key: String, value: AnyRef, replace: PartialFunction[AnyRef, AnyRef] = PartialFunction.empty): Unit = {
+    val dir = cacheDir(config)
+    AsyncFileWriter.submit { () =>
+      Files.createDirectories(dir)
+      val tmp = Files.createTempFile(dir, key, ".tmp")
+      val res = Try {
+        val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))
+        try {
+          out.writeUTF(Magic)
+          out.writeUTF(name)
+          out.writeInt(formatVersion)
+          out.writeUTF(GoVerifier.version)
+          val objOut = new DiskCache.CacheOutputStream(new GZIPOutputStream(out), replace)
+          objOut.writeObject(value)
+          objOut.close()
+        } finally out.close()
+        Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      }
+      res.failed.foreach { e =>
+        // some objects are not serializable, which only means that they are not cached
+        logger.debug(s"could not store an entry in the cache '$name': ${e.getLocalizedMessage}")
+        Files.deleteIfExists(tmp)
+      }
+    }
+  }
+}
+
+object DiskCache {
+
+  /** returns a hex-encoded SHA-256 hash of `parts` */
+  def hash(parts: Iterable[String]): String = {
+    val digest = MessageDigest.getInstance("SHA-256")
+    parts.foreach { s =>
+      digest.update(s.getBytes(StandardCharsets.UTF_8))
+      digest.update(0.toByte)
+    }
+    hex(digest.digest())
+  }
+
+  private def hex(bytes: Array[Byte]): String = bytes.map("%02x".format(_)).mkString
+
+  private case class SourcePositionSurrogate(file: String, line: Int, column: Int, end: Option[(Int, Int)])
+
+  private case object PositionManagerSurrogate
+
+  /** surrogate for Scala objects that are not serializable, which restores the singleton on deserialization */
+  private case class ModuleSurrogate(className: String)
+
+  private def isModule(obj: AnyRef): Boolean = {
+    val cls = obj.getClass
+    cls.getName.endsWith("$") && Try(cls.getField("MODULE$").get(null) eq obj).getOrElse(false)
+  }
+
+  /** packages of the classes that may be deserialized from a cache entry */
+  private val DeserializablePackages: Vector[String] = Vector("viper.", "scala.", "java.lang.", "java.util.", "java.math.")
+
+  /**
+    * rejects all classes outside of [[DeserializablePackages]] such that a tampered cache entry cannot instantiate
+    * arbitrary serializable classes on the class path
+    */
+  private val DeserializationFilter: ObjectInputFilter = info => Option(info.serialClass()) match {
+    case None => ObjectInputFilter.Status.UNDECIDED
+    case Some(cls) =>
+      var elemCls: Class[_] = cls
+      while (elemCls.isArray) elemCls = elemCls.getComponentType
+      if (elemCls.isPrimitive || DeserializablePackages.exists(elemCls.getName.startsWith)) ObjectInputFilter.Status.ALLOWED
+      else ObjectInputFilter.Status.REJECTED
+  }
+
+  private class CacheOutputStream(out: OutputStream, replace: PartialFunction[AnyRef, AnyRef]) extends ObjectOutputStream(out) {
+    enableReplaceObject(true)
+
+    override def replaceObject(obj: AnyRef): AnyRef = obj match {
+      case _ if replace.isDefinedAt(obj) => replace(obj)
+      case p: SourcePosition =>
+        SourcePositionSurrogate(p.file.toString, p.start.line, p.start.column, p.end.map(e => (e.line, e.column)))
+      // the positions of frontend nodes are not needed after type-checking
+      case _: PositionManager => PositionManagerSurrogate
+      case _: Serializable => obj
+      case _ if isModule(obj) => ModuleSurrogate(obj.getClass.getName)
+      case _ => obj
+    }
+  }
+
+  private class CacheInputStream(in: InputStream, resolve: PartialFunction[AnyRef, AnyRef]) extends ObjectInputStream(in) {
+    enableResolveObject(true)
+    setObjectInputFilter(DeserializationFilter)
+
+    override def resolveObject(obj: AnyRef): AnyRef = obj match {
+      case _ if resolve.isDefinedAt(obj) => resolve(obj)
+      case SourcePositionSurrogate(file, line, column, end) =>
+        SourcePosition(Paths.get(file), LineColumnPosition(line, column), end.map { case (l, c) => LineColumnPosition(l, c) })
+      case PositionManagerSurrogate => new PositionManager(new Positions)
+      case ModuleSurrogate(className) => Class.forName(className).getField("MODULE$").get(null)
+      case _ => obj
+    }
+  }
+}
@@ -6,6 +6,8 @@
 
 package viper.gobra.util
 
+import viper.gobra.backend.SiliconPool
+import viper.gobra.reporting.AsyncFileWriter
 import viper.server.core.{DefaultVerificationExecutionContext, VerificationExecutionContext}
 
 trait GobraExecutionContext extends VerificationExecutionContext {
@@ -17,6 +19,17 @@ trait GobraExecutionContext extends VerificationExecutionContext {
 }
 
 class DefaultGobraExecutionContext extends DefaultVerificationExecutionContext with GobraExecutionContext {
+  /**
+    * Stops all pooled Silicon instances and completes all pending writes of output files before terminating the
+    * context.
+    */
+  @throws(classOf[InterruptedException])
+  override def terminate(timeoutMSec: Long): Unit = {
+    SiliconPool.shutdown()
+    AsyncFileWriter.flush()
+    super.terminate(timeoutMSec)
+  }
+
   /**
     * In contrast to `terminate`, this function terminates the context but also checks whether it was successfully
     * shutdown meaning that no timeout has occurred while doing so.
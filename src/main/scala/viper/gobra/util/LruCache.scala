@@ -0,0 +1,85 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.util
+
+import java.util
+
+/**
+  * Thread-safe cache that evicts the least recently used entries as soon as it holds more entries than permitted.
+  * Values are computed outside of the cache's lock such that entries for different keys can be computed concurrently.
+  * The value of a key is computed at most once while its entry is in the cache: concurrent callers for the same key
+  * wait for the value computed by the first caller.
+  */
+class LruCache[K, V] {
+
+  /** holds the value of a key, which is computed by the first caller of `getOrCompute` */
+  private final class Entry {
+    @volatile private var value: Option[V] = None
+
+    def current: Option[V] = value
+
+    def set(v: V): Unit = synchronized { value = Some(v) }
+
+    def getOrCompute(compute: => V): V = value.getOrElse(synchronized {
+      value.getOrElse {
+        val v = compute
+        value = Some(v)
+        v
+      }
+    })
+  }
+
+  // access-ordered, i.e., the first entry is the least recently used one
+  private val entries: util.LinkedHashMap[K, Entry] = new util.LinkedHashMap(16, 0.75f, true)
+
+  /**
+    * Returns the value for `key` and computes and stores it if there is none.
+    * `capacity` is the maximum number of entries that are kept afterwards, `None` means unbounded.
+    */
+  def computeIfAbsent(key: K, capacity: Option[Int])(compute: => V): V = {
+    val entry = entries.synchronized {
+      val res = Option(entries.get(key)).getOrElse {
+        val e = new Entry
+        entries.put(key, e)
+        evict(capacity)
+        e
+      }
+      res
+    }
+    entry.getOrCompute(compute)
+  }
+
+  /** returns the value for `key` if it has been computed */
+  def get(key: K): Option[V] = entries.synchronized(Option(entries.get(key))).flatMap(_.current)
+
+  /** stores `value` for `key` and keeps at most `capacity` entries afterwards, `None` means unbounded */
+  def put(key: K, value: V, capacity: Option[Int]): Unit = {
+    val entry = new Entry
+    entry.set(value)
+    entries.synchronized {
+      entries.put(key, entry)
+      evict(capacity)
+    }
+  }
+
+  /** removes all entries whose (computed) value satisfies `p` */
+  def removeValues(p: V => Boolean): Unit = entries.synchronized {
+    entries.values().removeIf(_.current.exists(p))
+  }
+
+  private def evict(capacity: Option[Int]): Unit = capacity.foreach { c =>
+    val it = entries.entrySet().iterator()
+    while (entries.size() > c && it.hasNext) {
+      it.next()
+      it.remove()
+    }
+  }
+
+  def size: Int = entries.synchronized { entries.size() }
+
+  def clear(): Unit = entries.synchronized { entries.clear() }
+}
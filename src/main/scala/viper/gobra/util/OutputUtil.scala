@@ -14,4 +14,10 @@ object OutputUtil {
   def postfixFile(f: Path, postfix: String): Path = {
     f.resolveSibling(s"${f.getFileName}.$postfix")
   }
+
+  /** heap that is currently in use (including not yet collected garbage) in MB, used for debug output */
+  def usedHeapMB: Long = {
+    val runtime = Runtime.getRuntime
+    (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)
+  }
 }
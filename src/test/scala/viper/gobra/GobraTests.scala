@@ -16,26 +16,39 @@ import viper.gobra.frontend.Source.FromFileSource
 import viper.gobra.frontend.info.Info
 import viper.gobra.frontend.{Config, PackageResolver, Parser, Source}
 import viper.gobra.reporting.VerifierResult.{Failure, Success}
-import viper.gobra.reporting.{NoopReporter, VerifierError}
+import viper.gobra.reporting.{NoopReporter, VerifierError, VerifierResult}
 import viper.silver.testing.{AbstractOutput, AnnotatedTestInput, ProjectInfo, SystemUnderTest}
-import viper.silver.utility.TimingUtils
 import viper.gobra.util.{DefaultGobraExecutionContext, GobraExecutionContext}
 
-import scala.concurrent.{Await, Future}
+import java.util.concurrent.Executors
+import scala.concurrent.{Await, ExecutionContext, ExecutionContextExecutorService, Future}
 import scala.concurrent.duration.Duration
 
 class GobraTests extends AbstractGobraTests with BeforeAndAfterAll {
 
   val regressionsPropertyName = "GOBRATESTS_REGRESSIONS_DIR"
+  val parallelismPropertyName = "GOBRATESTS_PARALLELISM"
 
   val regressionsDir: String = System.getProperty(regressionsPropertyName, "regressions")
   val testDirectories: Seq[String] = Vector(regressionsDir)
   override val defaultTestPattern: String = PackageResolver.inputFilePattern
 
+  /**
+    * Number of inputs that are verified concurrently. If greater than 1, all inputs are verified ahead of their tests
+    * and each test only awaits the result of its input. Thus, the tests are still reported in the order in which
+    * they have been registered.
+    */
+  val parallelism: Int =
+    Option(System.getProperty(parallelismPropertyName)).flatMap(_.toIntOption).filter(_ > 0).getOrElse(1)
+
   var gobraInstance: Gobra = _
   var executor: GobraExecutionContext = _
   var inputs: Vector[Source] = Vector.empty
   val cacheParserAndTypeChecker = true
+  /** runs the verification of inputs ahead of their tests, only used if `parallelism` is greater than 1 and all tests are run */
+  var workers: ExecutionContextExecutorService = _
+  /** verification results (and the time required to compute them) of inputs that are verified ahead of their tests */
+  var precomputedResults: Map[Path, Future[(VerifierResult, Long)]] = Map.empty
 
   override def beforeAll(): Unit = {
     executor = new DefaultGobraExecutionContext()
@@ -74,25 +87,47 @@ class GobraTests extends AbstractGobraTests with BeforeAndAfterAll {
       Await.result(Future.sequence(futs), Duration.Inf)
       println("pre-parsing and pre-typeChecking completed")
     }
+    // if a single test is run, its input is verified by the test itself instead of verifying all inputs ahead
+    if (parallelism > 1 && testName.isEmpty) {
+      workers = ExecutionContext.fromExecutorService(Executors.newFixedThreadPool(parallelism))
+      // inputs are submitted in the order of their tests such that the first tests do not wait for later inputs
+      precomputedResults = inputs.collect { case source: FromFileSource =>
+        source.path -> Future(verify(source))(workers)
+      }.toMap
+    }
     super.runTests(testName, args)
   }
 
   override def afterAll(): Unit = {
+    if (workers != null) workers.shutdownNow()
+    precomputedResults = Map.empty
     executor.terminateAndAssertInexistanceOfTimeout()
     gobraInstance = null
   }
 
+  /**
+    * Verifies `source` with a configuration and reporter of its own. All verifications share the parse and type-check
+    * caches as well as the pool of started Silicon instances.
+    */
+  private def verify(source: Source): (VerifierResult, Long) = {
+    val config = getConfig(source)
+    val pkgInfo = config.packageInfoInputMap.keys.head
+    val startTime = System.currentTimeMillis()
+    val result = Await.result(gobraInstance.verify(pkgInfo, config)(executor), Duration.Inf)
+    (result, System.currentTimeMillis() - startTime)
+  }
+
   val gobraInstanceUnderTest: SystemUnderTest =
-    new SystemUnderTest with TimingUtils {
+    new SystemUnderTest {
       /** For filtering test annotations. Does not need to be unique. */
       override val projectInfo: ProjectInfo = new ProjectInfo(List("Gobra"))
 
       override def run(input: AnnotatedTestInput): Seq[AbstractOutput] = {
 
-        val source = FromFileSource(input.file)
-        val config = getConfig(source)
-        val pkgInfo = config.packageInfoInputMap.keys.head
-        val (result, elapsedMilis) = time(() => Await.result(gobraInstance.verify(pkgInfo, config)(executor), Duration.Inf))
+        val (result, elapsedMilis) = precomputedResults.get(input.file) match {
+          case Some(fut) => Await.result(fut, Duration.Inf)
+          case None => verify(FromFileSource(input.file))
+        }
 
         info(s"Time required: $elapsedMilis ms")
 
@@ -0,0 +1,95 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.ast
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.internal._
+import viper.gobra.ast.internal.utility.Nodes
+import viper.gobra.reporting.Source.Parser.Internal
+import viper.gobra.theory.Addressability
+import viper.silver.ast.utility.Visitor
+
+import scala.collection.immutable.ListMap
+import scala.collection.mutable.ListBuffer
+
+class InternalTraversalUnitTests extends AnyFunSuite with Matchers {
+
+  private val intT = IntT(Addressability.Exclusive)
+  private val x = LocalVar("x", intT)(Internal)
+  private val y = LocalVar("y", intT)(Internal)
+  private def lit(v: Int) = IntLit(v)(Internal)
+
+  private val loop = While(
+    LessCmp(x, lit(10))(Internal),
+    Vector(ExprAssertion(AtMostCmp(lit(0), x)(Internal))(Internal)),
+    Some(WildcardMeasure(Some(EqCmp(y, lit(1))(Internal)))(Internal)),
+    Seqn(Vector(
+      SingleAss(Assignee.Var(x), Add(x, lit(1))(Internal))(Internal),
+      If(EqCmp(x, y)(Internal), Seqn(Vector(Return()(Internal)))(Internal), Seqn(Vector.empty)(Internal))(Internal),
+    ))(Internal)
+  )(Internal)
+
+  private val array = ArrayLit(2, intT, ListMap(BigInt(0) -> Add(x, y)(Internal), BigInt(1) -> lit(3)))(Internal)
+
+  private val nodes: Vector[Node] = Vector(loop, array, Seqn(Vector(loop, Assert(ExprAssertion(EqCmp(array, array)(Internal))(Internal))(Internal)))(Internal))
+
+  /** direct sub-nodes as computed by the implementation of [[Nodes.subnodes]] before [[Nodes.foreachChild]] existed */
+  private def previousSubnodes(n: Node): Seq[Node] = {
+    def extractChildren(a: Any): Seq[Node] = a match {
+      case t: Node => Seq(t)
+      case t: Iterable[_] => t.flatMap(extractChildren).toSeq
+      case t: Product => t.productIterator.flatMap(extractChildren).toSeq
+      case _ => Seq.empty
+    }
+    n.productIterator.flatMap(extractChildren).toSeq
+  }
+
+  private val isExpr: PartialFunction[Node, Node] = { case e: Expr => e }
+  private val isStmt: PartialFunction[Node, Node] = { case s: Stmt => s }
+
+  test("Nodes: the children of a node are visited in the order of subnodes") {
+    nodes.flatMap(_.deepCollect { case n => n }).foreach { n =>
+      val expected = previousSubnodes(n)
+      Nodes.subnodes(n) shouldBe expected
+      val visited = ListBuffer.empty[Node]
+      n.foreachChild(visited += _)
+      visited.toSeq shouldBe expected
+      n.foldChildren(Vector.empty[Node])(_ :+ _) shouldBe expected
+    }
+  }
+
+  test("Nodes: existsChild stops at the first matching child") {
+    val visited = ListBuffer.empty[Node]
+    Nodes.existsChild(loop) { c => visited += c; c.isInstanceOf[Stmt] } shouldBe true
+    visited.toSeq shouldBe previousSubnodes(loop)
+    Nodes.existsChild(loop.cond)(_ == x) shouldBe true
+    Nodes.existsChild(lit(1))(_ => true) shouldBe false
+  }
+
+  test("Node: traversals are consistent with the Visitor-based traversals") {
+    nodes.foreach { n =>
+      n.deepCollect(isExpr) shouldBe Visitor.deepCollect(Seq(n), previousSubnodes)(isExpr)
+      n.deepCollect(isStmt) shouldBe Visitor.deepCollect(Seq(n), previousSubnodes)(isStmt)
+      n.shallowCollect(isExpr) shouldBe Visitor.shallowCollect(Seq(n), previousSubnodes)(isExpr)
+      n.shallowCollect(isStmt) shouldBe Visitor.shallowCollect(Seq(n), previousSubnodes)(isStmt)
+
+      val visited, expected = ListBuffer.empty[Node]
+      n.foreach(visited += _)
+      Visitor.visit(n, previousSubnodes) { case m => expected += m }
+      visited.toSeq shouldBe expected.toSeq
+
+      val visitedExprs, expectedExprs = ListBuffer.empty[Node]
+      n.visit { case e: Expr => visitedExprs += e }
+      Visitor.visit(n, previousSubnodes) { case e: Expr => expectedExprs += e }
+      visitedExprs.toSeq shouldBe expectedExprs.toSeq
+
+      n.existsDefined { case Return() => } shouldBe Visitor.existsDefined(n, previousSubnodes) { case Return() => }
+      n.existsDefined { case Negation(_) => } shouldBe false
+    }
+  }
+}
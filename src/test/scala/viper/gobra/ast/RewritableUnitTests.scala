@@ -0,0 +1,59 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.ast
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.internal._
+import viper.gobra.reporting.Source.Parser.Internal
+import viper.gobra.theory.Addressability
+
+class RewritableUnitTests extends AnyFunSuite with Matchers {
+
+  private val x = LocalVar("x", IntT(Addressability.Exclusive))(Internal)
+  private val one = IntLit(1)(Internal)
+
+  private val nodes: Vector[Node] = Vector(
+    one,
+    x,
+    Add(x, one)(Internal),
+    Conditional(BoolLit(true)(Internal), x, one, IntT(Addressability.Exclusive))(Internal),
+    Seqn(Vector(Assert(ExprAssertion(BoolLit(false)(Internal))(Internal))(Internal), Return()(Internal)))(Internal),
+    If(Negation(BoolLit(true)(Internal))(Internal), Seqn(Vector.empty)(Internal), Return()(Internal))(Internal),
+  )
+
+  test("Rewritable: nodes rebuilt via the cached constructor equal the ones rebuilt via Scala reflection") {
+    nodes.foreach { node =>
+      val args = node.children :+ node.info
+      val constructor = Rewritable.constructors.get(node.getClass)
+      constructor should not be empty
+      val viaConstructor = Rewritable.createWithConstructor(constructor.get, args)
+      val viaReflection = Rewritable.createReflectively(node, args)
+      viaConstructor shouldBe node
+      viaReflection shouldBe node
+      viaConstructor.getClass shouldBe viaReflection.getClass
+      viaConstructor.asInstanceOf[Node].info shouldBe viaReflection.asInstanceOf[Node].info
+    }
+  }
+
+  test("Rewritable: rebuilding a node with new children keeps its info") {
+    val two = IntLit(2)(Internal)
+    val rebuilt = Add(x, one)(Internal).withChildren(Seq(x, two), None, forceRewrite = true)
+    rebuilt shouldBe Add(x, two)(Internal)
+    rebuilt.info shouldBe Internal
+  }
+
+  test("Rewritable: exceptions thrown by node constructors are not wrapped") {
+    val decl = GlobalVarDecl(Vector.empty, Vector(Return()(Internal)))(Internal)
+    // `GlobalVarDecl` requires a non-empty sequence of declaration statements
+    an [IllegalArgumentException] should be thrownBy decl.withChildren(Seq(Vector.empty, Vector.empty), None, forceRewrite = true)
+    val args = Seq(Vector.empty, Vector.empty, Internal)
+    an [IllegalArgumentException] should be thrownBy Rewritable.createReflectively(decl, args)
+    an [IllegalArgumentException] should be thrownBy
+      Rewritable.createWithConstructor(Rewritable.constructors.get(decl.getClass).get, args)
+  }
+}
@@ -0,0 +1,147 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.frontend.Config
+import viper.gobra.reporting.TimeoutError
+import viper.gobra.util.{ChopperCostModel, DefaultGobraExecutionContext, GobraExecutionContext}
+import viper.silver.reporter.{Message, OverallFailureMessage, OverallSuccessMessage, Reporter}
+import viper.silver.verifier.{Failure, Success, TimeoutOccurred, VerificationResult}
+import viper.silver.{ast => vpr}
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import scala.collection.mutable.ListBuffer
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, Future}
+import scala.jdk.CollectionConverters._
+
+class BudgetedVerificationTests extends AnyFunSuite with Matchers with BeforeAndAfterAll {
+
+  implicit var executor: GobraExecutionContext = _
+
+  override def beforeAll(): Unit = {
+    executor = new DefaultGobraExecutionContext()
+  }
+
+  override def afterAll(): Unit = {
+    executor.terminateAndAssertInexistanceOfTimeout()
+  }
+
+  private def program(names: String*): vpr.Program = {
+    val methods = names.map(name => vpr.Method(name, Seq(), Seq(), Seq(), Seq(), Some(vpr.Seqn(Seq(), Seq())()))())
+    vpr.Program(Seq(), Seq(), Seq(), Seq(), methods, Seq())()
+  }
+
+  /**
+    * Verifier that times out on programs containing one of the `slow` methods unless it is run with `fastWith`. Every
+    * verification is recorded and reports an overall message named after the verified methods.
+    */
+  private class StubVerifier(slow: Set[String], fastWith: Option[String]) {
+    val runs: ListBuffer[(Vector[String], Set[String])] = ListBuffer.empty
+
+    def create(options: Vector[String]): ViperVerifier = new ViperVerifier {
+      override def verify(programID: String, reporter: Reporter, program: vpr.Program)(executor: GobraExecutionContext): Future[VerificationResult] = {
+        val names = program.methods.map(_.name).toSet
+        runs.synchronized(runs += ((options, names)))
+        val timesOut = names.exists(slow.contains) && !fastWith.exists(options.contains)
+        val result = if (timesOut) Failure(Seq(TimeoutOccurred(1, "second(s)"))) else Success
+        result match {
+          case f: Failure => reporter report OverallFailureMessage(names.toVector.sorted.mkString(","), 0, f)
+          case _ => reporter report OverallSuccessMessage(names.toVector.sorted.mkString(","), 0)
+        }
+        Future.successful(result)
+      }
+    }
+  }
+
+  private case class Outcome(result: VerificationResult, timeouts: Vector[TimeoutError], reported: Vector[Message])
+
+  private def verify(p: vpr.Program, verifier: StubVerifier, config: Config = Config(),
+                     costModel: ChopperCostModel = ChopperCostModel.empty): Outcome = {
+    val reported = new ConcurrentLinkedQueue[Message]()
+    val reporter = new Reporter {
+      override val name: String = "message_recorder"
+      override def report(msg: Message): Unit = reported.add(msg)
+    }
+    val timeouts = new ConcurrentLinkedQueue[TimeoutError]()
+    val fut = BackendVerifier.verifyWithBudget(config.taskName, p, 1, costModel, verifier.create, reporter, timeouts)(config)
+    val result = Await.result(fut, Duration.Inf)
+    Outcome(result, timeouts.asScala.toVector, reported.asScala.toVector)
+  }
+
+  private def reportedNames(outcome: Outcome): Vector[String] = outcome.reported.collect {
+    case OverallSuccessMessage(name, _) => name
+    case OverallFailureMessage(name, _, _) => name
+  }.sorted
+
+  test("a program that stays within its budget is verified once") {
+    val verifier = new StubVerifier(slow = Set.empty, fastWith = None)
+    val outcome = verify(program("a", "b"), verifier)
+    outcome.result shouldBe Success
+    outcome.timeouts shouldBe empty
+    verifier.runs.toVector shouldBe Vector((Vector("--timeout", "2"), Set("a", "b")))
+    reportedNames(outcome) shouldBe Vector("a,b")
+  }
+
+  test("a program exceeding its budget is split into isolated members") {
+    val verifier = new StubVerifier(slow = Set("a"), fastWith = None)
+    val outcome = verify(program("a", "b"), verifier)
+    // the timeout is reported separately and is not a verification error
+    outcome.result shouldBe Success
+    outcome.timeouts should have size 1
+    outcome.timeouts.head.message should include ("verification of a exceeded")
+    verifier.runs.map(_._2).toSet shouldBe Set(Set("a", "b"), Set("a"), Set("b"))
+    // the messages of the verification that exceeded its budget are not reported
+    reportedNames(outcome) shouldBe Vector("a", "b")
+  }
+
+  test("a program whose members cannot be isolated from each other is not split") {
+    val f = vpr.Function("f", Seq(), vpr.Int, Seq(), Seq(), Some(vpr.IntLit(0)()))()
+    val usesF = vpr.Assert(vpr.EqCmp(vpr.FuncApp(f, Seq())(), vpr.IntLit(0)())())()
+    val m = vpr.Method("m", Seq(), Seq(), Seq(), Seq(), Some(vpr.Seqn(Seq(usesF), Seq())()))()
+    val verifier = new StubVerifier(slow = Set("m"), fastWith = None)
+    val outcome = verify(vpr.Program(Seq(), Seq(), Seq(f), Seq(), Seq(m), Seq())(), verifier)
+    outcome.result shouldBe Success
+    // chopping results in a program with both `m` and `f`, which is thus not verified again
+    verifier.runs.toVector shouldBe Vector((Vector("--timeout", "2"), Set("m")))
+    outcome.timeouts should have size 1
+    outcome.timeouts.head.message should (include ("m") and include ("f"))
+  }
+
+  test("a member exceeding its budget in isolation is verified again with alternative options") {
+    val verifier = new StubVerifier(slow = Set("a"), fastWith = Some("--parallelizeBranches"))
+    val outcome = verify(program("a"), verifier, Config(retryTimedOutMembers = true))
+    outcome.result shouldBe Success
+    outcome.timeouts shouldBe empty
+    verifier.runs.map(_._1).toVector shouldBe Vector(Vector("--timeout", "1"), Vector("--timeout", "1", "--parallelizeBranches"))
+    reportedNames(outcome) shouldBe Vector("a")
+    outcome.reported.head shouldBe an [OverallSuccessMessage]
+  }
+
+  test("a member exceeding its budget with all alternative options is reported as a timeout") {
+    val verifier = new StubVerifier(slow = Set("a"), fastWith = None)
+    val outcome = verify(program("a"), verifier, Config(retryTimedOutMembers = true))
+    outcome.result shouldBe Success
+    outcome.timeouts should have size 1
+    verifier.runs should have size 3
+    // only the messages of the last attempt are reported
+    reportedNames(outcome) shouldBe Vector("a")
+  }
+
+  test("a program whose predicted verification time exceeds its budget is split right away") {
+    val verifier = new StubVerifier(slow = Set.empty, fastWith = None)
+    val config = Config()
+    val costModel = new ChopperCostModel(Map(config.taskName -> Map("a" -> 10000L)))
+    val outcome = verify(program("a", "b"), verifier, config, costModel)
+    outcome.result shouldBe Success
+    verifier.runs.map(_._2).toSet shouldBe Set(Set("a"), Set("b"))
+    reportedNames(outcome) shouldBe Vector("a", "b")
+  }
+}
@@ -0,0 +1,106 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.Gobra
+import viper.gobra.ast.frontend.PFunctionDecl
+import viper.gobra.frontend.Source.FromFileSource
+import viper.gobra.frontend.{Config, Source}
+import viper.gobra.reporting.{GobraEntityResultMessage, GobraMessage, GobraReporter, VerifierResult}
+import viper.gobra.util.{DefaultGobraExecutionContext, GobraExecutionContext}
+
+import java.nio.file.{Files, Path}
+import scala.collection.mutable.ListBuffer
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+
+class ResultCacheTests extends AnyFunSuite with Matchers with BeforeAndAfterAll {
+
+  val z3Exe: Option[String] = Option(System.getProperty("GOBRATESTS_Z3_EXE"))
+
+  var executor: GobraExecutionContext = _
+  var gobraInstance: Gobra = _
+
+  override def beforeAll(): Unit = {
+    executor = new DefaultGobraExecutionContext()
+    gobraInstance = new Gobra()
+  }
+
+  override def afterAll(): Unit = {
+    executor.terminateAndAssertInexistanceOfTimeout()
+  }
+
+  private def program(calleePre: String): String =
+    s"""package pkg
+       |
+       |requires $calleePre
+       |func callee(x int) {}
+       |
+       |func caller() {
+       |  callee(1)
+       |}
+       |""".stripMargin
+
+  test("ResultCache: a changed callee specification invalidates the cached result of its caller") {
+    val gobraDirectory = Files.createTempDirectory("gobra")
+    val file = gobraDirectory.resolve("pkg.gobra")
+
+    Files.writeString(file, program("x > 0"))
+    val (firstResult, firstCached) = verify(file, gobraDirectory)
+    firstResult shouldBe VerifierResult.Success
+    firstCached shouldBe Map("callee" -> false, "caller" -> false)
+
+    // unchanged sources are not verified again
+    val (secondResult, secondCached) = verify(file, gobraDirectory)
+    secondResult shouldBe VerifierResult.Success
+    secondCached shouldBe Map("callee" -> true, "caller" -> true)
+
+    // the caller no longer establishes the precondition of the callee
+    Files.writeString(file, program("x > 1"))
+    val (thirdResult, thirdCached) = verify(file, gobraDirectory)
+    thirdResult shouldBe a [VerifierResult.Failure]
+    thirdCached shouldBe Map("callee" -> false, "caller" -> false)
+  }
+
+  /**
+    * verifies the package in `file` with the result cache in `gobraDirectory` and returns the result together with
+    * whether the result of each function has been taken from the result cache
+    */
+  private def verify(file: Path, gobraDirectory: Path): (VerifierResult, Map[String, Boolean]) = {
+    val messages = ListBuffer.empty[GobraEntityResultMessage]
+    val reporter = new GobraReporter {
+      override val name: String = "result_recorder"
+      override def report(msg: GobraMessage): Unit = msg match {
+        case m: GobraEntityResultMessage => messages.synchronized(messages += m)
+        case _ =>
+      }
+    }
+    val source = FromFileSource(file)
+    val pkgInfo = Source.getPackageInfo(source, gobraDirectory)
+    val config = Config(
+      gobraDirectory = gobraDirectory,
+      reporter = reporter,
+      packageInfoInputMap = Map(pkgInfo -> Vector(source)),
+      projectRoot = gobraDirectory,
+      resultCache = true,
+      z3Exe = z3Exe,
+    )
+    val result = Await.result(gobraInstance.verify(pkgInfo, config)(executor), Duration.Inf)
+    // a function might be encoded into several Viper members, all of which have to be cached
+    val cached = messages.toVector
+      .flatMap(m => m.concerning.pnode match {
+        case f: PFunctionDecl => Some(f.id.name -> m.cached)
+        case _ => None
+      })
+      .groupMap(_._1)(_._2)
+      .map { case (name, flags) => name -> flags.forall(identity) }
+    (result, cached)
+  }
+}
@@ -0,0 +1,61 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.frontend.Config
+import viper.silver.{ast => vpr}
+
+class ResultCacheUnitTests extends AnyFunSuite with Matchers {
+
+  private val x = vpr.LocalVar("x", vpr.Int)()
+
+  private def callee(pre: vpr.Exp, body: Seq[vpr.Stmt]): vpr.Method =
+    vpr.Method("callee", Seq(vpr.LocalVarDecl("x", vpr.Int)()), Seq(), Seq(pre), Seq(), Some(vpr.Seqn(body, Seq())()))()
+
+  private val caller: vpr.Method =
+    vpr.Method("caller", Seq(), Seq(), Seq(), Seq(), Some(vpr.Seqn(Seq(vpr.MethodCall("callee", Seq(vpr.IntLit(1)()), Seq())()), Seq())()))()
+
+  private val unrelated: vpr.Method =
+    vpr.Method("unrelated", Seq(), Seq(), Seq(), Seq(), Some(vpr.Seqn(Seq(), Seq())()))()
+
+  private def keys(callee: vpr.Method): Map[String, String] =
+    ResultCache.keys(vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(callee, caller, unrelated), Seq())(), "settings")
+
+  private val original = keys(callee(vpr.GtCmp(x, vpr.IntLit(0)())(), Seq()))
+
+  test("changing the body of a method only changes its own key") {
+    val changed = keys(callee(vpr.GtCmp(x, vpr.IntLit(0)())(), Seq(vpr.Inhale(vpr.TrueLit()())())))
+    changed("callee") should not be original("callee")
+    changed("caller") shouldBe original("caller")
+    changed("unrelated") shouldBe original("unrelated")
+  }
+
+  test("changing the specification of a method changes the keys of its callers") {
+    val changed = keys(callee(vpr.GeCmp(x, vpr.IntLit(0)())(), Seq()))
+    changed("callee") should not be original("callee")
+    changed("caller") should not be original("caller")
+    changed("unrelated") shouldBe original("unrelated")
+  }
+
+  test("changing the settings changes all keys") {
+    val program = vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(callee(vpr.GtCmp(x, vpr.IntLit(0)())(), Seq()), caller), Seq())()
+    val changed = ResultCache.keys(program, "other settings")
+    changed("callee") should not be original("callee")
+    changed("caller") should not be original("caller")
+  }
+
+  test("the settings comprise the backend options, the solver paths, and the chopping and timeout options") {
+    val base = ResultCache.settings(Config(), Vector.empty)
+    ResultCache.settings(Config(), Vector.empty) shouldBe base
+    ResultCache.settings(Config(parallelizeBranches = true), Vector.empty) should not be base
+    ResultCache.settings(Config(), Vector("--z3Exe", "/other/z3")) should not be base
+    ResultCache.settings(Config(shouldChop = true, choppingUpperBound = 2), Vector.empty) should not be base
+    ResultCache.settings(Config(memberTimeout = Some(10)), Vector.empty) should not be base
+  }
+}
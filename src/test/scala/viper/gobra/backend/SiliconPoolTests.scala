@@ -0,0 +1,66 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.backend
+
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.util.DefaultGobraExecutionContext
+import viper.silver.reporter.NoopReporter
+import viper.silver.verifier.{Failure, Success}
+import viper.silver.{ast => vpr}
+
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+
+class SiliconPoolTests extends AnyFunSuite with Matchers with BeforeAndAfterAll {
+
+  private val arguments: Seq[String] =
+    Vector("--logLevel", "ERROR") ++ Option(System.getProperty("GOBRATESTS_Z3_EXE")).toVector.flatMap(Vector("--z3Exe", _))
+
+  private def program(name: String, post: vpr.Exp): vpr.Program = {
+    val method = vpr.Method(name, Seq(), Seq(), Seq(), Seq(post), Some(vpr.Seqn(Seq(), Seq())()))()
+    vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(method), Seq())()
+  }
+
+  private val valid = program("valid", vpr.TrueLit()())
+  private val invalid = program("invalid", vpr.FalseLit()())
+
+  override def afterAll(): Unit = SiliconPool.shutdown()
+
+  test("a pooled instance verifies different programs independently") {
+    val first = SiliconPool.acquire(arguments, NoopReporter)
+    first.backend.verify(valid) shouldBe Success
+    SiliconPool.release(first)
+
+    val second = SiliconPool.acquire(arguments, NoopReporter)
+    assert(second eq first)
+    second.backend.verify(invalid) shouldBe a [Failure]
+    SiliconPool.release(second)
+
+    // the error of the previous program does not affect the next one
+    val third = SiliconPool.acquire(arguments, NoopReporter)
+    assert(third eq first)
+    third.backend.verify(valid) shouldBe Success
+    SiliconPool.release(third)
+  }
+
+  test("the number of idle instances per key is bounded") {
+    val instances = Vector.fill(SiliconPool.MaxIdleInstancesPerKey + 1)(SiliconPool.acquire(arguments, NoopReporter))
+    instances.foreach(SiliconPool.release)
+    SiliconPool.idleCount(arguments) shouldBe SiliconPool.MaxIdleInstancesPerKey
+  }
+
+  test("a Silicon verifier that is not pooled does not keep its instance") {
+    val executor = new DefaultGobraExecutionContext()
+    val unpooledArguments = arguments ++ Vector("--timeout", "10")
+    val result = new Silicon(unpooledArguments, pooled = false).verify("unpooled", NoopReporter, valid)(executor)
+    Await.result(result, Duration.Inf) shouldBe Success
+    SiliconPool.idleCount(unpooledArguments) shouldBe 0
+    executor.terminateAndAssertInexistanceOfTimeout()
+  }
+}
@@ -0,0 +1,71 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.reporting
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import spray.json._
+import viper.silver.ast.SourcePosition
+import viper.silver.{ast => vpr}
+
+import java.nio.file.{Files, Paths}
+import scala.collection.mutable.ListBuffer
+import scala.jdk.CollectionConverters._
+
+class ResultStreamReporterTests extends AnyFunSuite with Matchers {
+
+  private def member(name: String): vpr.Method = vpr.Method(name, Seq(), Seq(), Seq(), Seq(), None)()
+
+  private def info(line: Int): Source.Verifier.Info =
+    Source.Verifier.noInfo.copy(origin = Source.Origin(SourcePosition(Paths.get("pkg", "file.gobra"), line, 5), "tag"))
+
+  test("ResultStreamReporter: every reported member results in a line of JSON") {
+    val output = Files.createTempFile("results", ".ndjson")
+    val forwarded = ListBuffer.empty[GobraMessage]
+    val nested = new GobraReporter {
+      override val name: String = "message_recorder"
+      override def report(msg: GobraMessage): Unit = forwarded += msg
+    }
+    val reporter = ResultStreamReporter(output, nested)
+
+    val error = TimeoutError("budget of \"foo\" exceeded")
+    val messages = Vector(
+      GobraEntitySuccessMessage("pkg", "silicon", member("foo"), info(3), 42, cached = false),
+      GobraEntityFailureMessage("pkg", "silicon", member("bar"), info(7), VerifierResult.Failure(Vector(error)), 13, cached = true),
+      VerificationTaskFinishedMessage("pkg"),
+    )
+    messages.foreach(reporter.report)
+    reporter.close()
+    // messages reported after closing the output are still forwarded
+    reporter.report(VerificationTaskFinishedMessage("other"))
+
+    forwarded.toVector shouldBe messages :+ VerificationTaskFinishedMessage("other")
+
+    val lines = Files.readAllLines(output).asScala.toVector.map(_.parseJson.asJsObject)
+    lines should have size 3
+
+    lines(0).fields shouldBe Map(
+      "event" -> JsString("member"),
+      "taskName" -> JsString("pkg"),
+      "member" -> JsString("foo"),
+      "file" -> JsString(Paths.get("pkg", "file.gobra").toString),
+      "line" -> JsNumber(3),
+      "column" -> JsNumber(5),
+      "result" -> JsString("success"),
+      "cached" -> JsBoolean(false),
+      "time" -> JsNumber(42),
+      "errors" -> JsArray(),
+    )
+
+    lines(1).fields("member") shouldBe JsString("bar")
+    lines(1).fields("result") shouldBe JsString("failure")
+    lines(1).fields("cached") shouldBe JsBoolean(true)
+    lines(1).fields("errors") shouldBe JsArray(JsString(error.formattedMessage))
+
+    lines(2).fields shouldBe Map("event" -> JsString("task_finished"), "taskName" -> JsString("pkg"))
+  }
+}
@@ -11,9 +11,11 @@ import org.scalatest.funsuite.AnyFunSuite
 import viper.gobra.ast.frontend._
 import viper.gobra.frontend.info.base.Type
 import viper.gobra.frontend.{Config, PackageInfo, ScallopGobraConfig}
-import viper.gobra.util.{DefaultGobraExecutionContext, GobraExecutionContext, Violation}
+import viper.gobra.util.{ChopperCostModel, DefaultGobraExecutionContext, GobraExecutionContext, Violation}
 import viper.gobra.Gobra
 
+import java.nio.file.Files
+import scala.collection.mutable.ListBuffer
 import scala.concurrent.Await
 import scala.concurrent.duration.Duration
 
@@ -42,6 +44,106 @@ class StatsCollectorTests extends AnyFunSuite with BeforeAndAfterAll {
     runIntegration(config)
   }
 
+  test("Integration with adaptive chopper") {
+    val gobraDirectory = Files.createTempDirectory("gobra")
+    val config = createConfig(Array("--recursive", "--projectRoot", statsCollectorTestDir, "-I", statsCollectorTestDir, "--chop", "10", "--adaptiveChop", "--gobraDirectory", gobraDirectory.toString))
+    // the first run records the verification times, which the second run uses to balance the chopped programs
+    gobraInstance.verifyAllPackages(config)(executor)
+    val costModel = ChopperCostModel.load(gobraDirectory)
+    assert(costModel.costs.nonEmpty)
+    assert(costModel.costs.keySet.subsetOf(config.packageInfoInputMap.keys.map(_.id).toSet))
+    runIntegration(config)
+  }
+
+  test("Integration with cached desugared program") {
+    val gobraDirectory = Files.createTempDirectory("gobra")
+    val config = createConfig(Array("--projectRoot", statsCollectorTestDir, "-I", statsCollectorTestDir, "-p", statsCollectorTestDir,
+      "--cacheDesugaredProgram", "--gobraDirectory", gobraDirectory.toString))
+    val pkgInfo = config.packageInfoInputMap.keys.head
+
+    /** verifies the package and returns the result, the reported internal programs, and the collected members */
+    def run(): (VerifierResult, Vector[String], Map[String, (String, Set[(String, Boolean)])]) = {
+      val programs = ListBuffer.empty[String]
+      val recorder = new GobraReporter {
+        override val name: String = "program_recorder"
+        override def report(msg: GobraMessage): Unit = msg match {
+          case DesugaredMessage(_, internal) => programs.synchronized(programs += s"desugared: ${internal().formatted}")
+          case AppliedInternalTransformsMessage(_, internal) => programs.synchronized(programs += s"transformed: ${internal().formatted}")
+          case _ =>
+        }
+      }
+      val statsCollector = StatsCollector(recorder)
+      val result = runAndCheck(config.copy(reporter = statsCollector, taskName = pkgInfo.id), statsCollector, pkgInfo)
+      val members = statsCollector.memberMap.toMap.map { case (id, entry) =>
+        id -> (entry.info.toString, entry.viperMembers.values.map(m => (m.memberName, m.success)).toSet)
+      }
+      (result, programs.toVector, members)
+    }
+
+    // the first run stores the desugared program, which the second run loads
+    val first = run()
+    assert(gobraDirectory.resolve("programs").toFile.list().length == 1)
+    val second = run()
+    assert(first._2.nonEmpty)
+    assert(second == first)
+  }
+
+  test("Streamed JSON report") {
+    val statsCollector = StatsCollector(NoopReporter)
+    def info(name: String, trusted: Boolean) = statsCollector.GobraMemberInfo("pkg", "pkg", name, "(x int)",
+      GobraNodeType.FunctionDeclaration, hasSpecification = true, isTrusted = trusted, isAbstractAndNotImported = false,
+      isImported = false, isBuiltIn = false)
+    def entry(name: String, dependencies: Set[String], success: Boolean) = statsCollector.ViperMemberEntry(name, "pkg", 42,
+      ViperNodeType.Method, dependencies, success, cached = false, fromImport = false, hasBody = true, verified = true)
+    statsCollector.addResult(info("foo", trusted = false), entry("foo", Set("bar"), success = true))
+    statsCollector.addResult(info("foo", trusted = false), entry("foo_pre", Set.empty, success = false))
+    statsCollector.addResult(info("bar", trusted = true), entry("bar", Set.empty, success = true))
+    statsCollector.addResult(info("baz", trusted = false), entry("baz", Set("foo", "bar"), success = true))
+
+    // the report as it was built as a single string before it has been streamed. Members are now separated by ",\n"
+    // like all other array elements instead of ", \n"
+    val i = "  "
+    def viperMemberJson(m: statsCollector.ViperMemberEntry, p: String): String =
+      s"""$p{
+         |$p$i"name": "${m.memberName}",
+         |$p$i"taskName": "${m.taskName}",
+         |$p$i"time": ${m.time},
+         |$p$i"nodeType": "${m.nodeType}",
+         |$p$i"success": ${m.success},
+         |$p$i"cached": ${m.cached},
+         |$p$i"fromImport": ${m.fromImport},
+         |$p$i"hasBody": ${m.hasBody},
+         |$p$i"verified": ${m.verified}
+         |$p}""".stripMargin
+    def memberJson(e: statsCollector.GobraMemberEntry, p: String): String = {
+      val viperMembersJson = e.viperMembers.values.map(viperMemberJson(_, s"$p$i$i"))
+      val dependencies = e.dependencies().map(entry => s"""$p$i$i"${entry.info.id}"""")
+      s"""$p{
+         |$p$i"id": "${e.info.id}",
+         |$p$i"pkgId": "${e.info.pkgId}",
+         |$p$i"pkg": "${e.info.pkg}",
+         |$p$i"name": "${e.info.pkg}.${e.info.memberName}",
+         |$p$i"args": "${e.info.args}",
+         |$p$i"nodeType": "${e.info.nodeType}",
+         |$p$i"trusted": ${e.info.isTrusted},
+         |$p$i"abstract": ${e.info.isAbstractAndNotImported},
+         |$p$i"viperMembers": [
+            |${viperMembersJson.mkString(",\n")}
+         |$p$i],
+         |$p$i"dependencies": [
+            |${dependencies.mkString(",\n")}
+         |$p$i]
+         |$p}""".stripMargin
+    }
+    val expected =
+      s"""[
+         |${statsCollector.memberMap.values.map(memberJson(_, i)).mkString(",\n")}
+         |]""".stripMargin
+
+    assert(statsCollector.getJsonReport == expected)
+    assert(statsCollector.memberMap("pkg.baz(x int)").dependencies().map(_.info.memberName) == Set("foo", "bar"))
+  }
+
   private def createConfig(args: Array[String]): Config = {
     // set throwError to true: Scallop will throw an exception instead of terminating the program in case an
     // exception occurs (e.g. a validation failure)
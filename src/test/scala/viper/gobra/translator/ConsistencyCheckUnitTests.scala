@@ -0,0 +1,54 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.translator
+
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.util.{DefaultGobraExecutionContext, GobraExecutionContext}
+import viper.silver.{ast => vpr}
+
+class ConsistencyCheckUnitTests extends AnyFunSuite with Matchers with BeforeAndAfterAll {
+
+  implicit var executor: GobraExecutionContext = _
+
+  override def beforeAll(): Unit = {
+    executor = new DefaultGobraExecutionContext()
+  }
+
+  override def afterAll(): Unit = {
+    executor.terminateAndAssertInexistanceOfTimeout()
+  }
+
+  private val x = vpr.LocalVarDecl("x", vpr.Int)()
+
+  /** method assigning each of `rhss` to an integer variable */
+  private def method(name: String, rhss: vpr.Exp*): vpr.Method = {
+    val body = vpr.Seqn(rhss.map(rhs => vpr.LocalVarAssign(x.localVar, rhs)()), Seq())()
+    vpr.Method(name, Seq(), Seq(x), Seq(), Seq(), Some(body))()
+  }
+
+  test("Translator: the parallel consistency check reports the errors of checkTransitively in the same order") {
+    val function = vpr.Function("f", Seq(), vpr.Int, Seq(), Seq(vpr.EqCmp(vpr.Result(vpr.Int)(), vpr.IntLit(0)())()), Some(vpr.TrueLit()()))()
+    val program = vpr.Program(Seq(), Seq(), Seq(function), Seq(), Seq(
+      method("m1", vpr.TrueLit()()),
+      method("m2", vpr.IntLit(1)(), vpr.FalseLit()(), vpr.NullLit()()),
+      method("m3", vpr.IntLit(2)()),
+      // duplicate identifier, reported by the program-level checks
+      method("m3", vpr.TrueLit()()),
+    ), Seq())()
+
+    val expected = program.checkTransitively
+    expected.size should be > 2
+    Translator.checkConsistency(program) shouldBe expected
+  }
+
+  test("Translator: the parallel consistency check reports no errors for a consistent program") {
+    val program = vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(method("m1", vpr.IntLit(1)()), method("m2")), Seq())()
+    Translator.checkConsistency(program) shouldBe empty
+  }
+}
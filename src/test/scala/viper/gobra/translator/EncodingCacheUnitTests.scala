@@ -0,0 +1,76 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.translator
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.frontend.{PIdnDef, PNode}
+import viper.gobra.ast.{internal => in}
+import viper.gobra.backend.BackendVerifier
+import viper.gobra.reporting.{BackTranslator, Source}
+import viper.silver.ast.{LineColumnPosition, SourcePosition}
+import viper.silver.{ast => vpr}
+
+import java.nio.file.Paths
+
+class EncodingCacheUnitTests extends AnyFunSuite with Matchers {
+
+  test("EncodingCache: the encoding of an identical program is reused") {
+    val pnode = PIdnDef("p")
+    val (first, firstCount) = encode(program(pnode))
+    val (second, secondCount) = encode(program(pnode))
+    firstCount should be (1)
+    secondCount should be (0)
+    assert(second eq first)
+  }
+
+  test("EncodingCache: a program referring to re-created frontend nodes is encoded again") {
+    val (first, _) = encode(program(PIdnDef("q")))
+    val (second, count) = encode(program(PIdnDef("q")))
+    count should be (1)
+    assert(second ne first)
+  }
+
+  test("EncodingCache: a program with different positions is encoded again") {
+    val pnode = PIdnDef("r")
+    encode(program(pnode, line = 1))
+    val (_, count) = encode(program(pnode, line = 2))
+    count should be (1)
+  }
+
+  test("EncodingCache: failed encodings are not cached") {
+    val pnode = PIdnDef("s")
+    EncodingCache.getOrEncode(program(pnode))(Left(Vector.empty)) should be (Left(Vector.empty))
+    val (_, count) = encode(program(pnode))
+    count should be (1)
+  }
+
+  test("EncodingCache: the hash is consistent with the comparison of programs") {
+    val pnode = PIdnDef("t")
+    val (p1, p2) = (program(pnode), program(pnode))
+    assert(EncodingCache.identical(p1, p2))
+    EncodingCache.hash(p1) should be (EncodingCache.hash(p2))
+  }
+
+  /** encodes `program` via the encoding cache and returns the task and the number of times the program was encoded */
+  private def encode(program: in.Program): (BackendVerifier.Task, Int) = {
+    var count = 0
+    val res = EncodingCache.getOrEncode(program) {
+      count += 1
+      Right(BackendVerifier.Task(vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(), Seq())(), BackTranslator.BackTrackInfo(Seq(), Seq())))
+    }
+    (res.toOption.get, count)
+  }
+
+  /** returns a program consisting of a single predicate declared by `pnode` at `line` */
+  private def program(pnode: PNode, line: Int = 1): in.Program = {
+    val pos = SourcePosition(Paths.get("test.gobra"), LineColumnPosition(line, 1), None)
+    val src = Source.Parser.Single(pnode, Source.Origin(pos, s"pred ${pnode.formatted}()"))
+    val pred = in.FPredicate(in.FPredicateProxy(pnode.formatted)(src), Vector.empty, None)(src)
+    in.Program(Vector.empty, Vector(pred), new in.LookupTable())(src)
+  }
+}
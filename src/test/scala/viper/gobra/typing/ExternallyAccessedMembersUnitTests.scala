@@ -0,0 +1,47 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.typing
+
+import org.bitbucket.inkytonik.kiama.util.{Positions, StringSource}
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.frontend.{PFunctionDecl, PIdnUse, PPackage, PPackageClause, PPkgDef, PositionManager}
+import viper.gobra.frontend.info.Info
+import viper.gobra.frontend.info.implementation.TypeInfoImpl
+import viper.gobra.frontend.{Config, PackageInfo, Parser}
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, Future}
+
+class ExternallyAccessedMembersUnitTests extends AnyFunSuite with Matchers {
+
+  private val numberOfFunctions = 50
+  private val numberOfImporters = 8
+
+  private val program =
+    ("package dep\n" +: (0 until numberOfFunctions).map(i => s"func F$i() {}\n") :+ "func unused() {}\n").mkString("\n")
+
+  test("members accessed by concurrently type-checked importers are all registered") {
+    val parsed = Parser.parseProgram(StringSource(program, "dep")) match {
+      case Right(p) => p
+      case Left(errs) => fail(s"Parsing failed: $errs")
+    }
+    val pkg = PPackage(PPackageClause(PPkgDef("dep")), Vector(parsed), new PositionManager(new Positions), new PackageInfo("dep", "dep", false))
+    val dep = new TypeInfoImpl(new Info.GoTree(pkg), Map.empty)(Config())
+
+    // every importer accesses all exported functions, in a different order
+    val importers = (0 until numberOfImporters).map { importer =>
+      Future((0 until numberOfFunctions).map(i => (i + importer) % numberOfFunctions).map(i => dep.externalRegular(PIdnUse(s"F$i"))))
+    }
+    Await.result(Future.sequence(importers), Duration.Inf).flatten.foreach(_ should not be empty)
+
+    val functions = parsed.declarations.collect { case f: PFunctionDecl => f }
+    functions.filter(_.id.name.startsWith("F")).foreach(f => assert(dep.isUsed(f), s"${f.id.name} is not registered"))
+    functions.filterNot(_.id.name.startsWith("F")).foreach(f => assert(!dep.isUsed(f), s"${f.id.name} is registered"))
+  }
+}
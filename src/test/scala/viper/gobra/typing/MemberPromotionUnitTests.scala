@@ -0,0 +1,57 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.typing
+
+import org.bitbucket.inkytonik.kiama.util.{Positions, StringSource}
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.frontend.{PPackage, PPackageClause, PPkgDef, PTypeDef, PositionManager}
+import viper.gobra.frontend.info.Info
+import viper.gobra.frontend.info.base.SymbolTable.TypeMember
+import viper.gobra.frontend.info.base.Type.{DeclaredT, Type}
+import viper.gobra.frontend.info.implementation.TypeInfoImpl
+import viper.gobra.frontend.info.implementation.resolution.AdvancedMemberSet
+import viper.gobra.frontend.{Config, PackageInfo, Parser}
+
+import scala.collection.mutable.ListBuffer
+
+class MemberPromotionUnitTests extends AnyFunSuite with Matchers {
+
+  // `D` is embedded in `A` via both `B` and `C`, and `E` is embedded in `D`
+  private val program =
+    """package pkg
+      |
+      |type A struct { B; C }
+      |type B struct { D }
+      |type C struct { D }
+      |type D struct { E }
+      |type E struct { f int }
+      |""".stripMargin
+
+  test("the promotions through a type embedded several times are computed once") {
+    val parsed = Parser.parseProgram(StringSource(program, "Input Program")) match {
+      case Right(p) => p
+      case Left(errs) => fail(s"Parsing failed: $errs")
+    }
+    val pkg = PPackage(PPackageClause(PPkgDef("pkg")), Vector(parsed), new PositionManager(new Positions), new PackageInfo("pkg", "pkg", false))
+    val info = new TypeInfoImpl(new Info.GoTree(pkg), Map.empty)(Config())
+    val decls = parsed.declarations.collect { case d: PTypeDef => d.left.name -> d }.toMap
+    def declared(name: String): Type = DeclaredT(decls(name), info)
+
+    val calls = ListBuffer.empty[Type]
+    val promotions = info.pastPromotions[TypeMember] { t => calls += t; AdvancedMemberSet.empty }
+
+    promotions(declared("A"))
+    calls.groupBy(identity).view.mapValues(_.size).toMap shouldBe
+      Map(declared("B") -> 1, declared("C") -> 1, declared("D") -> 2, declared("E") -> 1)
+
+    // the promotions of `A` and of its embedded types are memoized
+    promotions(declared("A"))
+    promotions(declared("D"))
+    calls should have size 5
+  }
+}
@@ -0,0 +1,44 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.typing
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.gobra.ast.frontend.{PIdnDef, PIntType, PTypeDef}
+import viper.gobra.frontend.info.base.Type.{DeclaredT, PointerT, SliceT}
+import viper.gobra.frontend.info.implementation.property.TypeInterning.{Key, Stats, Table}
+
+class TypeInterningUnitTests extends AnyFunSuite with Matchers {
+
+  private def decl: PTypeDef = PTypeDef(PIntType(), PIdnDef("T"))
+
+  test("types referring to the same declaration are identified") {
+    val d = decl
+    new Key(PointerT(DeclaredT(d, null))) shouldBe new Key(PointerT(DeclaredT(d, null)))
+    new Key(PointerT(DeclaredT(d, null))).hashCode shouldBe new Key(PointerT(DeclaredT(d, null))).hashCode
+  }
+
+  test("types referring to structurally equal but different declarations are not identified") {
+    val (d1, d2) = (decl, decl)
+    DeclaredT(d1, null) shouldBe DeclaredT(d2, null)
+    new Key(SliceT(DeclaredT(d1, null))) should not be new Key(SliceT(DeclaredT(d2, null)))
+  }
+
+  test("interning counts hits and misses") {
+    val (d1, d2) = (decl, decl)
+    val table = new Table
+    table.stats shouldBe Stats(0, 0)
+    val first = table.intern(PointerT(DeclaredT(d1, null)))
+    assert(table.intern(PointerT(DeclaredT(d1, null))) eq first)
+    assert(table.intern(first) eq first)
+    table.stats shouldBe Stats(2, 1)
+    assert(table.intern(PointerT(DeclaredT(d2, null))) ne first)
+    table.intern(SliceT(DeclaredT(d1, null)))
+    table.stats shouldBe Stats(2, 3)
+    table.stats.hitRate shouldBe 0.4
+  }
+}
@@ -0,0 +1,33 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.util
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import viper.silver.{ast => vpr}
+
+import java.nio.file.Files
+
+class ChopperCostModelUnitTests extends AnyFunSuite with Matchers {
+
+  private def method(name: String): vpr.Method =
+    vpr.Method(name, Seq(), Seq(), Seq(), Seq(), Some(vpr.Seqn(Seq(), Seq())()))()
+
+  test("the costs of a task are not used for tasks whose name is a prefix of it") {
+    val model = ChopperCostModel.empty.updated(Vector(("a-b", "m", 1000L)))
+    model.predict("a", method("m")) shouldBe None
+    // without any recorded cost for task `a`, every member costs 1
+    model.predict("a", vpr.Program(Seq(), Seq(), Seq(), Seq(), Seq(method("n")), Seq())()) shouldBe 1L
+  }
+
+  test("stored cost models are loaded again") {
+    val dir = Files.createTempDirectory("gobra")
+    val model = ChopperCostModel.empty.updated(Vector(("a#b", "m", 10L), ("a-b", "m", 20L), ("a", "b-m", 30L)))
+    ChopperCostModel.store(dir, model) shouldBe true
+    ChopperCostModel.load(dir).costs shouldBe model.costs
+  }
+}
@@ -0,0 +1,42 @@
+// This Source Code Form is subject to the terms of the Mozilla Public
+// License, v. 2.0. If a copy of the MPL was not distributed with this
+// file, You can obtain one at http://mozilla.org/MPL/2.0/.
+//
+// Copyright (c) 2011-2023 ETH Zurich.
+
+package viper.gobra.util
+
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+import java.util.concurrent.atomic.AtomicInteger
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, Future}
+
+class LruCacheUnitTests extends AnyFunSuite with Matchers {
+
+  test("concurrent misses on the same key compute the value once") {
+    val cache = new LruCache[String, Int]
+    val computations = new AtomicInteger(0)
+    val results = Await.result(Future.sequence(Vector.fill(16)(Future {
+      cache.computeIfAbsent("key", None) {
+        Thread.sleep(10)
+        computations.incrementAndGet()
+      }
+    })), Duration.Inf)
+    computations.get() shouldBe 1
+    results.distinct shouldBe Vector(1)
+  }
+
+  test("the least recently used entries are evicted") {
+    val cache = new LruCache[String, Int]
+    cache.computeIfAbsent("a", Some(2))(1)
+    cache.computeIfAbsent("b", Some(2))(2)
+    cache.computeIfAbsent("a", Some(2))(fail("value should be cached"))
+    cache.computeIfAbsent("c", Some(2))(3)
+    cache.get("a") shouldBe Some(1)
+    cache.get("b") shouldBe None
+    cache.get("c") shouldBe Some(3)
+  }
+}